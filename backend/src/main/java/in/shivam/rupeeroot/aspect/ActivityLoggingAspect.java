@@ -2,8 +2,8 @@ package in.shivam.rupeeroot.aspect;
 
 import in.shivam.rupeeroot.annotation.LogActivity;
 import in.shivam.rupeeroot.entity.ActivityLog;
-import in.shivam.rupeeroot.entity.ProfileEntity;
 import in.shivam.rupeeroot.repository.ActivityLogRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import in.shivam.rupeeroot.service.ProfileService;
 import lombok.RequiredArgsConstructor;
 import org.aspectj.lang.JoinPoint;
@@ -23,7 +23,7 @@ public class ActivityLoggingAspect {
     public void logActivity(JoinPoint joinPoint, LogActivity logActivity, Object result) {
         try {
             // 1. Get the current user
-            ProfileEntity user = profileService.getCurrentProfile();
+            ProfilePrincipal user = profileService.getCurrentPrincipal();
 
             // 2. Create the log entry
             ActivityLog log = ActivityLog.builder()
@@ -0,0 +1,156 @@
+package in.shivam.rupeeroot.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache with a small in-process Caffeine tier (L1) in front of the shared Redis tier (L2).
+ * Reads try L1 first and fall back to Redis, copying hits into L1.
+ * Evictions go to both tiers and are then broadcast so other nodes drop their L1 copy.
+ * Local keys are String.valueOf(key) so they match what arrives over pub/sub.
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local;
+    private final Cache remote;
+    private final BiConsumer<String, String> invalidationPublisher; // (cacheName, key or "*")
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+
+    public TwoTierCache(String name,
+                        com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local,
+                        Cache remote,
+                        BiConsumer<String, String> invalidationPublisher,
+                        MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+        this.localHits = counter(meterRegistry, "local", "hit");
+        this.localMisses = counter(meterRegistry, "local", "miss");
+        this.remoteHits = counter(meterRegistry, "redis", "hit");
+        this.remoteMisses = counter(meterRegistry, "redis", "miss");
+    }
+
+    private Counter counter(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("cache.tier.requests")
+                .description("Two-tier cache lookups per tier")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = String.valueOf(key);
+        ValueWrapper wrapper = local.getIfPresent(localKey);
+        if (wrapper != null) {
+            localHits.increment();
+            return wrapper;
+        }
+        localMisses.increment();
+        return loadFromRemote(key, localKey);
+    }
+
+    private ValueWrapper loadFromRemote(Object key, String localKey) {
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null) {
+            remoteHits.increment();
+            local.put(localKey, wrapper);
+        } else {
+            remoteMisses.increment();
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = String.valueOf(key);
+        ValueWrapper wrapper = local.getIfPresent(localKey);
+        if (wrapper != null) {
+            localHits.increment();
+            return (T) wrapper.get();
+        }
+        localMisses.increment();
+        // Caffeine runs the loader once per key, so concurrent misses on this node collapse into one load
+        wrapper = local.get(localKey, k -> {
+            ValueWrapper fromRemote = remote.get(key);
+            if (fromRemote != null) {
+                remoteHits.increment();
+                return fromRemote;
+            }
+            remoteMisses.increment();
+            try {
+                T value = valueLoader.call();
+                remote.put(key, value);
+                return new SimpleValueWrapper(value);
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        });
+        return (T) wrapper.get();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        local.put(String.valueOf(key), new SimpleValueWrapper(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = String.valueOf(key);
+        remote.evict(key);
+        local.invalidate(localKey);
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidationPublisher.accept(name, "*");
+    }
+
+    // --- Called when another node broadcasts an eviction ---
+
+    void evictLocal(String localKey) {
+        if ("*".equals(localKey)) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(localKey);
+        }
+    }
+}
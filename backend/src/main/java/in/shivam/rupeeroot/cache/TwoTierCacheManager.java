@@ -0,0 +1,108 @@
+package in.shivam.rupeeroot.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * CacheManager handing out {@link TwoTierCache}s: a bounded Caffeine tier per node in front of Redis.
+ * Evictions are published on a Redis channel; every node (this class is also the listener)
+ * drops its local copy when it hears about an eviction from another node.
+ * Transaction aware, so evictions issued inside @Transactional methods run after commit.
+ */
+@Slf4j
+public class TwoTierCacheManager extends AbstractTransactionSupportingCacheManager implements MessageListener {
+
+    private static final String SEPARATOR = "|";
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String channel;
+    private final long localMaxEntries;
+    private final Duration localTtl;
+
+    // Lets a node ignore its own broadcasts - it has already evicted locally
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public TwoTierCacheManager(RedisCacheManager redisCacheManager,
+                               StringRedisTemplate redisTemplate,
+                               MeterRegistry meterRegistry,
+                               String channel,
+                               long localMaxEntries,
+                               Duration localTtl) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.channel = channel;
+        this.localMaxEntries = localMaxEntries;
+        this.localTtl = localTtl;
+        setTransactionAware(true);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache remote = redisCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return new TwoTierCache(name,
+                Caffeine.newBuilder()
+                        .maximumSize(localMaxEntries)
+                        .expireAfterWrite(localTtl)
+                        .build(),
+                remote,
+                this::publishEviction,
+                meterRegistry);
+    }
+
+    private void publishEviction(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + SEPARATOR + cacheName + SEPARATOR + key);
+        } catch (Exception e) {
+            // Other nodes fall back to the local TTL if the broadcast is lost
+            log.warn("Failed to publish cache eviction for {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        Cache cache = lookupCache(parts[1]);
+        if (cache == null) {
+            return; // Never used on this node, nothing cached locally
+        }
+        Cache target = cache instanceof TransactionAwareCacheDecorator decorator
+                ? decorator.getTargetCache()
+                : cache;
+        if (target instanceof TwoTierCache twoTierCache) {
+            twoTierCache.evictLocal(parts[2]);
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+}
@@ -0,0 +1,66 @@
+package in.shivam.rupeeroot.config;
+
+import in.shivam.rupeeroot.cache.TwoTierCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    // Shared by every component that listens on a Redis pub/sub channel. Listeners run on one thread, so
+    // messages are handled in the order they were published (the default executor starts a thread per message,
+    // which let relayed WebSocket messages overtake each other). Every listener only hands off or evicts.
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-listener");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        return container;
+    }
+
+    // Only when Redis caching is on (spring.cache.type=redis); otherwise Boot's own cache setup applies
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                            StringRedisTemplate redisTemplate,
+                                            RedisMessageListenerContainer listenerContainer,
+                                            MeterRegistry meterRegistry,
+                                            CacheProperties cacheProperties,
+                                            @Value("${app.cache.local.max-entries:500}") long localMaxEntries,
+                                            @Value("${app.cache.local.ttl:30s}") Duration localTtl,
+                                            @Value("${app.cache.invalidation-channel:rupeeroot:cache:evict}") String channel) {
+        RedisCacheConfiguration redisConfig = RedisCacheConfiguration.defaultCacheConfig();
+        Duration redisTtl = cacheProperties.getRedis().getTimeToLive();
+        if (redisTtl != null) {
+            redisConfig = redisConfig.entryTtl(redisTtl);
+        }
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(redisConfig)
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager(
+                redisCacheManager, redisTemplate, meterRegistry, channel, localMaxEntries, localTtl);
+        listenerContainer.addMessageListener(cacheManager, new ChannelTopic(channel));
+        return cacheManager;
+    }
+}
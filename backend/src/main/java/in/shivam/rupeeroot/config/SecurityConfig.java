@@ -2,6 +2,7 @@ package in.shivam.rupeeroot.config;
 
 import in.shivam.rupeeroot.security.JwtRequestFilter;
 import in.shivam.rupeeroot.service.AppUserDetailsService;
+import in.shivam.rupeeroot.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -63,6 +64,7 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept"));
+        configuration.setExposedHeaders(List.of(KeysetCursor.NEXT_CURSOR_HEADER)); // keyset pagination
         configuration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -1,5 +1,8 @@
 package in.shivam.rupeeroot.config;
 
+import in.shivam.rupeeroot.websocket.RedisBrokerRelay;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -8,14 +11,21 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ObjectProvider<RedisBrokerRelay> brokerRelay;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // This enables a simple memory-based message broker to carry messages back to the client
         // on destinations prefixed with "/topic"
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        // Deliver to each session in the order the broker received the messages, not whichever pool thread is first
+        config.setPreservePublishOrder(true);
+        // The simple broker only reaches this node's sessions; the relay carries group/user topics to the others
+        brokerRelay.ifAvailable(relay -> config.configureBrokerChannel().interceptors(relay));
     }
 
     @Override
@@ -25,5 +35,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        // Handle each session's frames in arrival order, so a sender's chat messages get seqs in the order sent
+        registry.setPreserveReceiveOrder(true);
     }
 }
\ No newline at end of file
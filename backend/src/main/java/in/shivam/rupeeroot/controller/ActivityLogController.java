@@ -1,8 +1,8 @@
 package in.shivam.rupeeroot.controller;
 
 import in.shivam.rupeeroot.entity.ActivityLog;
-import in.shivam.rupeeroot.entity.ProfileEntity;
 import in.shivam.rupeeroot.repository.ActivityLogRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import in.shivam.rupeeroot.service.ProfileService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -22,7 +22,7 @@ public class ActivityLogController {
 
     @GetMapping
     public ResponseEntity<List<ActivityLog>> getRecentActivities() {
-        ProfileEntity user = profileService.getCurrentProfile();
+        ProfilePrincipal user = profileService.getCurrentPrincipal();
 
         // Fetch logs for the user or their entire group
         List<ActivityLog> logs = activityLogRepository.findTop10ByUserEmailOrGroupIdOrderByTimestampDesc(
@@ -1,15 +1,19 @@
 package in.shivam.rupeeroot.controller;
 
 import in.shivam.rupeeroot.dto.ChatMessageDTO;
+import in.shivam.rupeeroot.dto.CursorPageDTO;
 import in.shivam.rupeeroot.service.ChatService;
+import in.shivam.rupeeroot.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -26,19 +30,36 @@ public class ChatController {
     @MessageMapping("/chat/{groupId}")
     public void sendMessage(@DestinationVariable String groupId, @Payload ChatMessageDTO chatMessage) {
 
-        // 1. Save the message to MySQL
+        // 1. Queue the message for MySQL (batched write-behind, see ChatMessageWriter)
         chatMessage.setGroupId(groupId);
-        ChatMessageDTO savedMsg = chatService.saveMessage(chatMessage);
 
-        // 2. Broadcast to everyone in the group
+        // 2. Broadcast to everyone in the group once it may be (after the commit, unless fire-and-forget);
+        // a message that could not be saved is logged by the writer and not broadcast
         // Topic: /topic/groups/{groupId}/chat
-        messagingTemplate.convertAndSend("/topic/groups/" + groupId + "/chat", savedMsg);
+        chatService.saveMessage(chatMessage)
+                .thenAccept(savedMsg -> messagingTemplate.convertAndSend("/topic/groups/" + groupId + "/chat", savedMsg));
+    }
+
+    // Resume after a reconnect: SUBSCRIBE to /app/chat/{groupId}/since/{seq} replies once, to this session only,
+    // with up to MAX_PAGE_SIZE messages after seq (ask again from the last one if the batch is full)
+    @SubscribeMapping("/chat/{groupId}/since/{seq}")
+    public List<ChatMessageDTO> messagesSince(@DestinationVariable String groupId, @DestinationVariable long seq) {
+        return chatService.getMessagesSince(groupId, seq, ChatService.MAX_PAGE_SIZE);
     }
 
     // --- REST API HANDLING ---
-    // Get history: GET /api/v1.0/chat/history/{groupId}
+    // Get history: GET /api/v1.0/chat/history/{groupId}?before={seq}&limit={n}
+    // Newest page by default, oldest first; the X-Next-Cursor header is the before value for the next older page
     @GetMapping("/chat/history/{groupId}")
-    public ResponseEntity<List<ChatMessageDTO>> getChatHistory(@PathVariable String groupId) {
-        return ResponseEntity.ok(chatService.getChatHistory(groupId));
+    public ResponseEntity<List<ChatMessageDTO>> getChatHistory(@PathVariable String groupId,
+                                                               @RequestParam(required = false) Long before,
+                                                               @RequestParam(required = false) Integer limit) {
+        CursorPageDTO<ChatMessageDTO> page = chatService.getChatHistory(groupId, before, ChatService.clampPageSize(limit));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
-}
\ No newline at end of file
+}
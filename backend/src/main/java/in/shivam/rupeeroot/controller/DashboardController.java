@@ -1,7 +1,8 @@
 package in.shivam.rupeeroot.controller;
 
-import in.shivam.rupeeroot.entity.ProfileEntity; // Import ProfileEntity
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import in.shivam.rupeeroot.service.DashboardService;
+import in.shivam.rupeeroot.service.GroupVersionService;
 import in.shivam.rupeeroot.service.ProfileService; // Import ProfileService
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,15 +19,16 @@ public class DashboardController {
 
     private final DashboardService dashboardService;
     private final ProfileService profileService; // 1. Inject ProfileService
+    private final GroupVersionService groupVersionService;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getDashboardData() {
-        // 2. Get the current user's ID
-        ProfileEntity currentProfile = profileService.getCurrentProfile();
-        Long userId = currentProfile.getId();
+        // 2. Get the current user's profile
+        ProfilePrincipal currentProfile = profileService.getCurrentPrincipal();
 
-        // 3. Pass the userId to the service (which will use it as the cache key)
-        Map<String, Object> dashboardData = dashboardService.getDashboardData(userId);
+        // 3. Dashboard data is shared by the whole group, so the cache key is the group's current generation
+        String cacheKey = groupVersionService.dashboardKey(currentProfile);
+        Map<String, Object> dashboardData = dashboardService.getDashboardData(cacheKey);
 
         return ResponseEntity.ok(dashboardData);
     }
@@ -1,6 +1,6 @@
 package in.shivam.rupeeroot.controller;
 
-import in.shivam.rupeeroot.entity.ProfileEntity;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import in.shivam.rupeeroot.service.*;
 import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
@@ -11,13 +11,13 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/email")
 @RequiredArgsConstructor
 public class EmailController {
 
-    private final ExcelService excelService;
     private final IncomeService incomeService;
     private final ExpenseService expenseService;
     private final EmailService emailService;
@@ -25,9 +25,10 @@ public class EmailController {
 
     @GetMapping("/income-excel")
     public ResponseEntity<Void> emailIncomeExcel() throws IOException, MessagingException {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        excelService.writeIncomesToExcel(baos, incomeService.getCurrentMonthIncomesForCurrentUser());
+        LocalDate now = LocalDate.now();
+        incomeService.exportIncomes(now.withDayOfMonth(1), now.withDayOfMonth(now.lengthOfMonth()), baos);
         emailService.sendEmailWithAttachment(profile.getEmail(),
                 "Your Income Excel Report",
                 "Please find attached your income report",
@@ -38,9 +39,10 @@ public class EmailController {
 
     @GetMapping("/expense-excel")
     public ResponseEntity<Void> emailExpenseExcel() throws IOException, MessagingException {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        excelService.writeExpensesToExcel(baos, expenseService.getCurrentMonthExpensesForCurrentUser());
+        LocalDate now = LocalDate.now();
+        expenseService.exportExpenses(now.withDayOfMonth(1), now.withDayOfMonth(now.lengthOfMonth()), baos);
         emailService.sendEmailWithAttachment(
                 profile.getEmail(),
                 "Your Expense Excel Report",
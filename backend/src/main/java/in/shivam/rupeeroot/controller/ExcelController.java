@@ -1,36 +1,60 @@
 package in.shivam.rupeeroot.controller;
 
-import in.shivam.rupeeroot.service.ExcelService;
 import in.shivam.rupeeroot.service.ExpenseService;
 import in.shivam.rupeeroot.service.IncomeService;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/excel")
 @RequiredArgsConstructor
 public class ExcelController {
 
-    private final ExcelService excelService;
     private final IncomeService incomeService;
     private final ExpenseService expenseService;
 
+    // Any date range; without one the current month is exported (as before)
     @GetMapping("/download/income")
-    public void downloadIncomeExcel(HttpServletResponse response) throws IOException {
+    public void downloadIncomeExcel(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                    HttpServletResponse response) throws IOException {
+        LocalDate[] range = resolveRange(startDate, endDate);
+        if (range == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
         response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         response.setHeader("Content-Disposition", "attachment; filename=income.xlsx");
-        excelService.writeIncomesToExcel(response.getOutputStream(), incomeService.getCurrentMonthIncomesForCurrentUser());
+        incomeService.exportIncomes(range[0], range[1], response.getOutputStream());
     }
 
     @GetMapping("/download/expense")
-    public void downloadExpenseExcel(HttpServletResponse response) throws IOException {
+    public void downloadExpenseExcel(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                     HttpServletResponse response) throws IOException {
+        LocalDate[] range = resolveRange(startDate, endDate);
+        if (range == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
         response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         response.setHeader("Content-Disposition", "attachment; filename=expense.xlsx");
-        excelService.writeExpensesToExcel(response.getOutputStream(), expenseService.getCurrentMonthExpensesForCurrentUser());
+        expenseService.exportExpenses(range[0], range[1], response.getOutputStream());
+    }
+
+    // Missing start = first of the current month, missing end = today's month end; null if the range is inverted
+    private LocalDate[] resolveRange(LocalDate startDate, LocalDate endDate) {
+        LocalDate now = LocalDate.now();
+        LocalDate start = startDate != null ? startDate : now.withDayOfMonth(1);
+        LocalDate end = endDate != null ? endDate : now.withDayOfMonth(now.lengthOfMonth());
+        return start.isAfter(end) ? null : new LocalDate[]{start, end};
     }
 }
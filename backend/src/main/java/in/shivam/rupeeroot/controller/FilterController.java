@@ -1,10 +1,13 @@
 package in.shivam.rupeeroot.controller;
 
+import in.shivam.rupeeroot.dto.CursorPageDTO;
 import in.shivam.rupeeroot.dto.ExpenseDTO;
 import in.shivam.rupeeroot.dto.FilterDTO;
 import in.shivam.rupeeroot.dto.IncomeDTO;
 import in.shivam.rupeeroot.service.ExpenseService;
 import in.shivam.rupeeroot.service.IncomeService;
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
@@ -27,23 +30,38 @@ public class FilterController {
     @PostMapping
     public ResponseEntity<?> filterTransactions(@RequestBody FilterDTO filter) {
         // Preparing the data or validation
-        LocalDate startDate = filter.getStartDate() != null ? filter.getStartDate() : LocalDate.MIN;
+        // No start date means no lower bound; the page size keeps the response bounded
+        LocalDate startDate = filter.getStartDate();
         LocalDate endDate = filter.getEndDate() != null ? filter.getEndDate() : LocalDate.now();
         String keyword = filter.getKeyword() != null ? filter.getKeyword() : "";
-        String sortField = filter.getSortField() != null ? filter.getSortField() : "date";
         Sort.Direction direction = "desc".equalsIgnoreCase(filter.getSortOrder()) ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Sort sort = Sort.by(direction, sortField);
+        int limit = KeysetCursor.clampPageSize(filter.getLimit());
+
+        TransactionSortField sortField;
+        KeysetCursor cursor;
+        try {
+            sortField = TransactionSortField.fromRequest(filter.getSortField());
+            cursor = filter.getCursor() != null ? KeysetCursor.decode(filter.getCursor(), sortField, direction) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
         if ("income".equals(filter.getType())) {
-            // FIXED: Use getIncomesForUser with null for profileId (defaults to current user)
-            List<IncomeDTO> incomes = incomeService.getIncomesForUser(null, startDate, endDate, keyword, sort);
-            return ResponseEntity.ok(incomes);
+            CursorPageDTO<IncomeDTO> page = incomeService.getIncomePage(startDate, endDate, keyword, sortField, direction, cursor, limit);
+            return pageResponse(page);
         } else if ("expense".equalsIgnoreCase(filter.getType())) {
-            // FIXED: Use getExpensesForUser with null for profileId (defaults to current user)
-            List<ExpenseDTO> expenses = expenseService.getExpensesForUser(null, startDate, endDate, keyword, sort);
-            return ResponseEntity.ok(expenses);
+            CursorPageDTO<ExpenseDTO> page = expenseService.getExpensePage(startDate, endDate, keyword, sortField, direction, cursor, limit);
+            return pageResponse(page);
         } else {
             return ResponseEntity.badRequest().body("Invalid type. Must be 'income' or 'expense'");
         }
     }
-}
\ No newline at end of file
+
+    private <T> ResponseEntity<List<T>> pageResponse(CursorPageDTO<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
@@ -1,14 +1,15 @@
 package in.shivam.rupeeroot.controller;
 
 import in.shivam.rupeeroot.annotation.LogActivity;
+import in.shivam.rupeeroot.dto.CursorPageDTO;
 import in.shivam.rupeeroot.dto.IncomeDTO;
-import in.shivam.rupeeroot.entity.ProfileEntity; // Import this
 import in.shivam.rupeeroot.service.IncomeService;
-import in.shivam.rupeeroot.service.ProfileService; // Import this
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,54 +20,40 @@ import java.util.List;
 public class IncomeController {
 
     private final IncomeService incomeService;
-    private final ProfileService profileService; // 1. Inject ProfileService
-    private final SimpMessagingTemplate messagingTemplate;
 
     @PostMapping
     @LogActivity(value = "INCOME_ADDED", description = "Added a new income source")
     public ResponseEntity<IncomeDTO> addIncome(@RequestBody IncomeDTO dto) {
+        // Group members get an INCOME_ADDED event once it commits (GroupEventService)
         IncomeDTO saved = incomeService.addIncome(dto);
 
-        // 2. Get Current User Profile
-        ProfileEntity currentUser = profileService.getCurrentProfile();
-
-        // 3. Determine Destination based on Group Status (Matches Frontend AppContext.jsx logic)
-        String destination;
-        if (currentUser.getGroupId() != null && !currentUser.getGroupId().isEmpty()) {
-            // If user is in a group, send to the group topic
-            destination = "/topic/groups/" + currentUser.getGroupId() + "/incomes";
-        } else {
-            // If user is independent, send to their specific user topic
-            destination = "/topic/user/" + currentUser.getId() + "/incomes";
-        }
-
-        // 4. Send the message to the specific destination
-        messagingTemplate.convertAndSend(destination, "Income Added");
-
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
     @GetMapping
-    public ResponseEntity<List<IncomeDTO>> getExpenses() {
-        List<IncomeDTO> incomes = incomeService.getCurrentMonthIncomesForCurrentUser();
-        return ResponseEntity.ok(incomes);
+    public ResponseEntity<List<IncomeDTO>> getExpenses(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit) {
+        KeysetCursor after;
+        try {
+            after = cursor != null ? KeysetCursor.decode(cursor, TransactionSortField.DATE, Sort.Direction.DESC) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPageDTO<IncomeDTO> page = incomeService.getCurrentMonthIncomePage(after, KeysetCursor.clampPageSize(limit));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     @DeleteMapping("/{id}")
     @LogActivity(value = "INCOME_DELETED", description = "Deleted an income source")
     public ResponseEntity<Void> deleteIncome(@PathVariable Long id) {
+        // Members get an INCOME_DELETED event once it commits
         incomeService.deleteIncome(id);
 
-        // 5. Replicate logic for delete (Optional but recommended for real-time updates on delete)
-        ProfileEntity currentUser = profileService.getCurrentProfile();
-        String destination;
-        if (currentUser.getGroupId() != null && !currentUser.getGroupId().isEmpty()) {
-            destination = "/topic/groups/" + currentUser.getGroupId() + "/incomes";
-        } else {
-            destination = "/topic/user/" + currentUser.getId() + "/incomes";
-        }
-        messagingTemplate.convertAndSend(destination, "Income Deleted");
-
         return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
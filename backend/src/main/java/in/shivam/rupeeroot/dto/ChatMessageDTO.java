@@ -12,9 +12,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 public class ChatMessageDTO {
+    private String messageId; // Set by the server, before the message is saved
     private String content;
     private String senderName;
     private String senderEmail;
     private String groupId;
     private LocalDateTime timestamp;
+    private Long seq; // Per-group sequence number, set by the server
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// One line of the daily expense summary, tagged with its owner so a batch can be grouped per profile
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyExpenseRowDTO {
+    private Long profileId;
+    private String name;
+    private BigDecimal amount;
+    private String categoryName;
+}
@@ -0,0 +1,16 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Debt algorithm input, aggregated in SQL: everything one member paid into shared expenses
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DebtPayerTotalDTO {
+    private Long payerId;
+    private BigDecimal total;
+}
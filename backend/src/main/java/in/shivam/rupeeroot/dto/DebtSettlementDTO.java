@@ -5,13 +5,14 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-public class DebtSettlementDTO {
+public class DebtSettlementDTO implements Serializable { // Cached in Redis
     private String fromUserName;
     private Long fromUserId; // --- NEW FIELD: Identifies the Debtor ---
 
@@ -20,4 +21,8 @@ public class DebtSettlementDTO {
 
     private BigDecimal amount;
     private String avatarUrl;
+
+    // How the plan was computed: EXACT (fewest transfers), GREEDY, or GREEDY_TIMEOUT
+    private String strategy;
+    private Long solveTimeMicros;
 }
\ No newline at end of file
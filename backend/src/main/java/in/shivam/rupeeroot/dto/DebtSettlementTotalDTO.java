@@ -0,0 +1,17 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Debt algorithm input, aggregated in SQL: everything one member has settled to another
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DebtSettlementTotalDTO {
+    private Long payerId;
+    private Long settledToId;
+    private BigDecimal total;
+}
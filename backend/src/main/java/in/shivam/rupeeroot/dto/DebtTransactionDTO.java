@@ -0,0 +1,19 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Debt algorithm input: only the columns it reads from an expense (projection, no entity loaded)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DebtTransactionDTO {
+    private Long payerId;
+    private Long settledToId; // null for normal expenses
+    private BigDecimal amount;
+    private Boolean isSplittable;
+    private Boolean isSettlement;
+}
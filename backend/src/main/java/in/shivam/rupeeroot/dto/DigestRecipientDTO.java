@@ -0,0 +1,15 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Who a scheduled email goes to: just the profile columns the jobs read (projection, no entity loaded)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DigestRecipientDTO {
+    private Long id;
+    private String fullName;
+    private String email;
+}
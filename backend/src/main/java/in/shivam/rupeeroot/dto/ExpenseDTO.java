@@ -38,4 +38,22 @@ public class ExpenseDTO implements Serializable {
     // --- NEW FIELDS ---
     private Boolean isSettlement;
     private Long settledToId; // ID of the person receiving the money
+
+    // Projection constructor for the list queries in ExpenseRepository (one row per expense, no entity loaded)
+    public ExpenseDTO(Long id, String name, String icon, BigDecimal amount, LocalDate date,
+                      Long categoryId, String categoryName, LocalDateTime createdAt, LocalDateTime updatedAt,
+                      String creatorName, Boolean isSplittable, Boolean isSettlement) {
+        this.id = id;
+        this.name = name;
+        this.icon = icon;
+        this.amount = amount;
+        this.date = date;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.creatorName = creatorName;
+        this.isSplittable = isSplittable;
+        this.isSettlement = isSettlement;
+    }
 }
\ No newline at end of file
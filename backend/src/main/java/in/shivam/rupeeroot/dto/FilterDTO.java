@@ -13,4 +13,6 @@ public class FilterDTO {
     private String keyword;
     private String sortField; //date, amount, name
     private String sortOrder; //asc or desc
+    private String cursor; // X-Next-Cursor of the previous page, null for the first page
+    private Integer limit; // page size, capped server-side
 }
@@ -0,0 +1,21 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GroupBalanceDriftDTO {
+    private String groupId;
+    private Long profileId;
+    private BigDecimal ledgerPaidSplittable; // What tbl_group_balances says
+    private BigDecimal sourcePaidSplittable; // What replaying tbl_expenses gives
+    private BigDecimal ledgerSettlementNet;
+    private BigDecimal sourceSettlementNet;
+}
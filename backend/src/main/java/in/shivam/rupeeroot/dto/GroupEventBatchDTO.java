@@ -0,0 +1,32 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Payload of /topic/groups/{groupId}/expenses|incomes (or /topic/user/{id}/... for independent users):
+ * the changes committed in the group within one coalescing window, oldest first, and the totals after
+ * the last of them.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GroupEventBatchDTO {
+
+    // Group (or solo profile) generation after this batch: consecutive per scope, so a client that sees a gap
+    // missed an update and should refetch
+    private long version;
+
+    private List<GroupEventDTO> events;
+
+    // Dashboard totals after the batch
+    private BigDecimal totalIncome;
+    private BigDecimal totalExpense;
+    private BigDecimal totalBalance;
+}
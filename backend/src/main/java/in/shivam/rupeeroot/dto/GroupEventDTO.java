@@ -0,0 +1,29 @@
+package in.shivam.rupeeroot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One committed expense or income change, sent to group members inside a GroupEventBatchDTO
+ * so clients can patch their state instead of refetching the dashboard.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GroupEventDTO {
+
+    public enum Type { EXPENSE_ADDED, EXPENSE_DELETED, DEBT_SETTLED, INCOME_ADDED, INCOME_DELETED }
+
+    private Type type;
+
+    private Long profileId; // Who made the change
+
+    // The created or deleted row; one of the two, by type
+    private ExpenseDTO expense;
+    private IncomeDTO income;
+}
@@ -18,6 +18,8 @@ public class IncomeDTO implements Serializable { // Implement Serializable
 
     private static final long serialVersionUID = 1L; // Best practice
 
+    // Field order = all-args constructor order, used by the projection queries in IncomeRepository
+
     private Long id;
     private String name;
     private String icon;
@@ -0,0 +1,22 @@
+package in.shivam.rupeeroot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LedgerDriftDTO {
+    private Long profileId;
+    private LocalDate monthStart;
+    private String kind;
+    private Boolean isSettlement;
+    private BigDecimal ledgerTotal; // What tbl_monthly_totals says
+    private BigDecimal sourceTotal; // What the source rows add up to
+}
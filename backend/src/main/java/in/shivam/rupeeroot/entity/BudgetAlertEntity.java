@@ -0,0 +1,45 @@
+package in.shivam.rupeeroot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Budget thresholds already alerted per (profile, month), so each one emails once a month
+@Entity
+@Table(name = "tbl_budget_alerts",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"profile_id", "month_start", "threshold_percent"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BudgetAlertEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "profile_id", nullable = false)
+    private Long profileId;
+
+    // Always the first day of the month
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(name = "threshold_percent", nullable = false)
+    private Integer thresholdPercent;
+
+    // Month's spend and limit when the alert fired
+    private BigDecimal spent;
+    private BigDecimal budgetLimit;
+
+    @Column(updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -10,7 +10,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tbl_chat_messages")
+@Table(name = "tbl_chat_messages",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_chat_group_seq", columnNames = {"group_id", "seq"}),
+                @UniqueConstraint(name = "uk_chat_message_id", columnNames = "message_id")
+        })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -21,11 +25,19 @@ public class ChatMessage {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Assigned by ChatService before the message is broadcast; the row itself is written later by ChatMessageWriter
+    @Column(length = 36)
+    private String messageId;
+
     private String content;
     private String senderName;
     private String senderEmail;
     private String groupId;
 
+    // Per-group, gap-free in the normal case, assigned by ChatService; history pages and resumes by it
+    private Long seq;
+
+    // Set by ChatService when the message is accepted (ChatMessageWriter inserts it); creation time otherwise
     @CreationTimestamp
     private LocalDateTime timestamp;
 }
\ No newline at end of file
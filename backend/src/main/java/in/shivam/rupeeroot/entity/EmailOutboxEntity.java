@@ -0,0 +1,62 @@
+package in.shivam.rupeeroot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+// Emails waiting to be sent. Written in the caller's transaction, so a mail exists only if its cause committed;
+// EmailOutboxService sends them in the background with retries.
+@Entity
+@Table(name = "tbl_email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at, id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailOutboxEntity {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING"; // claimed by a worker
+    public static final String SENT = "SENT";
+    public static final String DEAD = "DEAD";       // gave up after max attempts
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    private String subject;
+
+    // Digest tables easily go past VARCHAR(255); text/longtext depending on the database
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String body;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime claimedAt;
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
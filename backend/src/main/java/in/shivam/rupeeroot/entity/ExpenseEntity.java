@@ -17,7 +17,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "tbl_expenses")
+// One index per allowed listing sort (TransactionSortField), id last for the keyset tie-breaker
+@Table(name = "tbl_expenses", indexes = {
+        @Index(name = "idx_expenses_profile_date", columnList = "profile_id, date, id"),
+        @Index(name = "idx_expenses_profile_amount", columnList = "profile_id, amount, id"),
+        @Index(name = "idx_expenses_profile_name", columnList = "profile_id, name, id")
+})
 public class ExpenseEntity {
 
     @Id
@@ -49,7 +54,7 @@ public class ExpenseEntity {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private CategoryEntity category;
 
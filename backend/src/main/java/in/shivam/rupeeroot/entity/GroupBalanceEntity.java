@@ -0,0 +1,39 @@
+package in.shivam.rupeeroot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Running debt inputs per (group, member): what the member paid into shared expenses and their net settlements.
+// Kept in step with tbl_expenses so group debts never have to replay full history.
+@Entity
+@Table(name = "tbl_group_balances",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "profile_id"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GroupBalanceEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private String groupId;
+
+    @Column(name = "profile_id", nullable = false)
+    private Long profileId;
+
+    // Sum of the member's splittable expenses
+    @Column(name = "paid_splittable", nullable = false)
+    private BigDecimal paidSplittable;
+
+    // Settlements paid minus settlements received, within the group
+    @Column(name = "settlement_net", nullable = false)
+    private BigDecimal settlementNet;
+}
@@ -17,7 +17,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "tbl_incomes")
+// One index per allowed listing sort (TransactionSortField), id last for the keyset tie-breaker
+@Table(name = "tbl_incomes", indexes = {
+        @Index(name = "idx_incomes_profile_date", columnList = "profile_id, date, id"),
+        @Index(name = "idx_incomes_profile_amount", columnList = "profile_id, amount, id"),
+        @Index(name = "idx_incomes_profile_name", columnList = "profile_id, name, id")
+})
 public class IncomeEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,49 @@
+package in.shivam.rupeeroot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// One row per (scheduled job, partition): which node holds the partition for which run, until when,
+// and how far it got. JobPartitionService claims rows with conditional UPDATEs, so any number of nodes can share them.
+@Entity
+@Table(name = "tbl_job_partitions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_job_partition", columnNames = {"job_name", "partition_no"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class JobPartitionEntity {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    // The run the row belongs to (the job's date); null until the first run
+    private LocalDate runKey;
+
+    private String status;
+
+    // Node id of the holder, see JobPartitionService
+    private String owner;
+
+    private LocalDateTime leaseUntil;
+
+    // Last profile id fully handled in this run; a node taking over resumes after it
+    private Long lastId;
+}
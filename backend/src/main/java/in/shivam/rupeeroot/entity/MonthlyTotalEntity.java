@@ -0,0 +1,42 @@
+package in.shivam.rupeeroot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Running totals per (profile, month, kind, settlement flag).
+// Kept in step with tbl_expenses / tbl_incomes so the dashboard never has to SUM full history.
+@Entity
+@Table(name = "tbl_monthly_totals",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"profile_id", "month_start", "kind", "is_settlement"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MonthlyTotalEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "profile_id", nullable = false)
+    private Long profileId;
+
+    // Always the first day of the month
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(nullable = false)
+    private String kind; // "EXPENSE" or "INCOME"
+
+    @Column(name = "is_settlement", nullable = false)
+    private Boolean isSettlement;
+
+    @Column(nullable = false)
+    private BigDecimal total;
+}
@@ -0,0 +1,17 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.entity.BudgetAlertEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BudgetAlertRepository extends JpaRepository<BudgetAlertEntity, Long> {
+
+    @Query("SELECT a.thresholdPercent FROM BudgetAlertEntity a WHERE a.profileId = :profileId AND a.monthStart = :monthStart")
+    List<Integer> findThresholdPercents(@Param("profileId") Long profileId, @Param("monthStart") LocalDate monthStart);
+}
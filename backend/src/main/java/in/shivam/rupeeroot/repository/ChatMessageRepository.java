@@ -1,14 +1,42 @@
 package in.shivam.rupeeroot.repository;
 
 import in.shivam.rupeeroot.entity.ChatMessage;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+// Every read is a range on the (group_id, seq) unique index
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
 
-    // Fetch all messages for a group, oldest first
-    List<ChatMessage> findByGroupIdOrderByTimestampAsc(String groupId);
-}
\ No newline at end of file
+    // Newest messages first
+    List<ChatMessage> findByGroupIdOrderBySeqDesc(String groupId, Limit limit);
+
+    // One page older than a cursor, newest first
+    List<ChatMessage> findByGroupIdAndSeqLessThanOrderBySeqDesc(String groupId, Long before, Limit limit);
+
+    // Resume: everything after a sequence number, oldest first
+    List<ChatMessage> findByGroupIdAndSeqGreaterThanOrderBySeqAsc(String groupId, Long after, Limit limit);
+
+    @Query("SELECT MAX(m.seq) FROM ChatMessage m WHERE m.groupId = :groupId")
+    Long findMaxSeq(@Param("groupId") String groupId);
+
+    // --- SEQUENCE BACKFILL (messages saved before seq existed) ---
+
+    @Query("SELECT DISTINCT m.groupId FROM ChatMessage m WHERE m.seq IS NULL AND m.groupId IS NOT NULL")
+    List<String> findGroupIdsWithoutSeq();
+
+    @Query("SELECT m.id FROM ChatMessage m WHERE m.groupId = :groupId AND m.seq IS NULL ORDER BY m.id")
+    List<Long> findIdsWithoutSeq(@Param("groupId") String groupId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.seq = :seq WHERE m.id = :id")
+    int setSeq(@Param("id") Long id, @Param("seq") Long seq);
+}
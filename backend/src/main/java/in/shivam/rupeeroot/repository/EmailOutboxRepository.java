@@ -0,0 +1,56 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.entity.EmailOutboxEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// The modifying queries run in their own short transaction; they are called from the dispatcher's worker threads
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxEntity, Long> {
+
+    @Query("SELECT o.id FROM EmailOutboxEntity o WHERE o.status = 'PENDING' AND o.nextAttemptAt <= :now ORDER BY o.nextAttemptAt, o.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Limit limit);
+
+    // Claim one row; returns 0 when another node (or poll) got it first
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxEntity o SET o.status = 'SENDING', o.claimedAt = :now WHERE o.id = :id AND o.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // markSent / markFailed only touch the row while it still holds this worker's claim; they return 0 when the
+    // claim went stale and the row was released (and maybe claimed again) meanwhile
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxEntity o SET o.status = 'SENT', o.sentAt = :now, o.attempts = o.attempts + 1, o.lastError = NULL "
+            + "WHERE o.id = :id AND o.status = 'SENDING' AND o.claimedAt = :claimedAt")
+    int markSent(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxEntity o SET o.status = :status, o.attempts = o.attempts + 1, o.nextAttemptAt = :nextAttemptAt, o.lastError = :error "
+            + "WHERE o.id = :id AND o.status = 'SENDING' AND o.claimedAt = :claimedAt")
+    int markFailed(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("status") String status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    // A node died mid-send: hand its claims back (the mail may go out twice, never zero times)
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxEntity o SET o.status = 'PENDING' WHERE o.status = 'SENDING' AND o.claimedAt < :staleBefore")
+    int releaseStaleClaims(@Param("staleBefore") LocalDateTime staleBefore);
+
+    // Retention: sent mail is only kept for a while
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutboxEntity o WHERE o.status = 'SENT' AND o.sentAt < :sentBefore")
+    int deleteSentBefore(@Param("sentBefore") LocalDateTime sentBefore);
+
+    long countByStatus(String status);
+}
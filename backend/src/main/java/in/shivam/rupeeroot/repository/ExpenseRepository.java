@@ -1,18 +1,37 @@
 package in.shivam.rupeeroot.repository;
 
+import in.shivam.rupeeroot.dto.DailyExpenseRowDTO;
+import in.shivam.rupeeroot.dto.DebtPayerTotalDTO;
+import in.shivam.rupeeroot.dto.DebtSettlementTotalDTO;
+import in.shivam.rupeeroot.dto.ExpenseDTO;
 import in.shivam.rupeeroot.entity.ExpenseEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<ExpenseEntity, Long> {
+public interface ExpenseRepository extends JpaRepository<ExpenseEntity, Long>, JpaSpecificationExecutor<ExpenseEntity>, ExpenseRepositoryCustom {
+
+    // Projection used by every list path: exactly the ExpenseDTO columns, category and creator joined in one select
+    String EXPENSE_ROW = "SELECT new in.shivam.rupeeroot.dto.ExpenseDTO(e.id, e.name, e.icon, e.amount, e.date, "
+            + "c.id, COALESCE(c.name, 'N/A'), e.createdAt, e.updatedAt, p.fullName, e.isSplittable, e.isSettlement) "
+            + "FROM ExpenseEntity e LEFT JOIN e.category c JOIN e.profile p ";
 
     // --- 1. Modified Dashboard Methods (Ignore Settlements) ---
 
@@ -32,33 +51,71 @@ public interface ExpenseRepository extends JpaRepository<ExpenseEntity, Long> {
     @Query("SELECT e FROM ExpenseEntity e WHERE e.profile.id = :profileId AND (e.isSettlement IS NULL OR e.isSettlement = false) ORDER BY e.date DESC")
     List<ExpenseEntity> findTop5ByProfileIdOrderByDateDesc(Long profileId);
 
-    // --- 2. Modified Group Methods (Ignore Settlements in Dashboard) ---
-
-    // Total expense for group - Exclude settlements
-    @Query("SELECT SUM(e.amount) FROM ExpenseEntity e WHERE e.profile.id IN :profileIds AND (e.isSettlement IS NULL OR e.isSettlement = false)")
-    BigDecimal findTotalExpenseByProfileIds(@Param("profileIds") List<Long> profileIds);
-
-    // List for group - Exclude settlements
-    @Query("SELECT e FROM ExpenseEntity e WHERE e.profile.id IN :profileIds AND e.date BETWEEN :startDate AND :endDate AND (e.isSettlement IS NULL OR e.isSettlement = false)")
-    List<ExpenseEntity> findByProfileIdInAndDateBetween(List<Long> profileIds, LocalDate startDate, LocalDate endDate);
-
-    // Search for group - Exclude settlements
-    @Query("SELECT e FROM ExpenseEntity e WHERE e.profile.id IN :profileIds AND e.date BETWEEN :startDate AND :endDate AND LOWER(e.name) LIKE LOWER(CONCAT('%', :keyword, '%')) AND (e.isSettlement IS NULL OR e.isSettlement = false)")
-    List<ExpenseEntity> findByProfileIdInAndDateBetweenAndNameContainingIgnoreCase(List<Long> profileIds, LocalDate startDate, LocalDate endDate, String keyword, Sort sort);
-
-    // Latest 5 for group - Exclude settlements
-    @Query("SELECT e FROM ExpenseEntity e WHERE e.profile.id IN :profileIds AND (e.isSettlement IS NULL OR e.isSettlement = false) ORDER BY e.date DESC")
-    List<ExpenseEntity> findTop5ByProfileIdInOrderByDateDesc(List<Long> profileIds);
-
-
     // --- 3. Methods kept as-is or Helper Methods ---
 
     List<ExpenseEntity> findByProfileIdOrderByDateDesc(Long profileId);
 
-    @Query("SELECT e FROM ExpenseEntity e WHERE e.profile.id = :profileId AND e.date = :date AND (e.isSettlement IS NULL OR e.isSettlement = false)")
-    List<ExpenseEntity> findByProfileIdAndDate(Long profileId, LocalDate date);
-
-    // --- 4. NEW METHOD FOR DEBT SERVICE (Must Include Settlements) ---
-    // This fetches EVERYTHING so the debt algorithm can see the repayments
-    List<ExpenseEntity> findByProfileIdIn(List<Long> profileIds);
-}
\ No newline at end of file
+    // --- 4. DEBT SERVICE AGGREGATES (Must Include Settlements) ---
+    // A few rows per member however long the history; no expense entities are loaded
+
+    // Shared spend per payer: splittable expenses, plus settlements with no receiver (same rule as the debt replay)
+    @Query("SELECT new in.shivam.rupeeroot.dto.DebtPayerTotalDTO(e.profile.id, SUM(e.amount)) FROM ExpenseEntity e "
+            + "WHERE e.profile.id IN :profileIds AND (e.isSplittable = true OR e.isSettlement = true) "
+            + "AND NOT (e.isSettlement = true AND e.settledTo IS NOT NULL) "
+            + "GROUP BY e.profile.id")
+    List<DebtPayerTotalDTO> sumSplittableByPayer(@Param("profileIds") List<Long> profileIds);
+
+    // Settlements per (payer, receiver), both inside the given profiles
+    @Query("SELECT new in.shivam.rupeeroot.dto.DebtSettlementTotalDTO(e.profile.id, e.settledTo.id, SUM(e.amount)) FROM ExpenseEntity e "
+            + "WHERE e.profile.id IN :profileIds AND e.isSettlement = true AND e.settledTo.id IN :profileIds "
+            + "GROUP BY e.profile.id, e.settledTo.id")
+    List<DebtSettlementTotalDTO> sumSettlementsByPayerAndReceiver(@Param("profileIds") List<Long> profileIds);
+
+    // --- 5. LEDGER REBUILD: one profile, per month and settlement flag (Includes Settlements) ---
+    // Row layout: [year, month, isSettlement, sum]
+    @Query("SELECT YEAR(e.date), MONTH(e.date), COALESCE(e.isSettlement, false), SUM(e.amount) FROM ExpenseEntity e WHERE e.profile.id = :profileId GROUP BY YEAR(e.date), MONTH(e.date), COALESCE(e.isSettlement, false)")
+    List<Object[]> sumAmountsByMonth(@Param("profileId") Long profileId);
+
+    // --- 6. LIST PROJECTIONS (one query per list, no lazy loads in toDTO) ---
+
+    // Export for any date range - Exclude settlements. Read through a DB cursor (fetch size hint),
+    // so it must be consumed and closed inside a read-only transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(EXPENSE_ROW + "WHERE p.id IN :profileIds AND e.date BETWEEN :startDate AND :endDate AND (e.isSettlement IS NULL OR e.isSettlement = false) ORDER BY e.date, e.id")
+    Stream<ExpenseDTO> streamRowsByProfileIdInAndDateBetween(@Param("profileIds") List<Long> profileIds, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Latest N for the group - Exclude settlements (Limit actually caps the SQL, unlike findTop5 on an @Query)
+    @Query(EXPENSE_ROW + "WHERE p.id IN :profileIds AND (e.isSettlement IS NULL OR e.isSettlement = false) ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseDTO> findLatestRowsByProfileIdIn(@Param("profileIds") List<Long> profileIds, Limit limit);
+
+    // Daily summary for a batch of users in one query - Exclude settlements
+    @Query("SELECT new in.shivam.rupeeroot.dto.DailyExpenseRowDTO(e.profile.id, e.name, e.amount, COALESCE(c.name, 'N/A')) "
+            + "FROM ExpenseEntity e LEFT JOIN e.category c "
+            + "WHERE e.profile.id IN :profileIds AND e.date = :date AND (e.isSettlement IS NULL OR e.isSettlement = false) "
+            + "ORDER BY e.profile.id, e.id")
+    List<DailyExpenseRowDTO> findDailyRowsByProfileIdIn(@Param("profileIds") List<Long> profileIds, @Param("date") LocalDate date);
+
+    // Search index build: [id, name] of every listed row of these profiles
+    @Query("SELECT e.id, e.name FROM ExpenseEntity e WHERE e.profile.id IN :profileIds AND (e.isSettlement IS NULL OR e.isSettlement = false)")
+    List<Object[]> findIdAndNameByProfileIdIn(@Param("profileIds") List<Long> profileIds);
+
+    // Keyset page for listings: rows after the cursor in (sortField, id) order, at most `limit` rows.
+    // Null dates/keyword/cursor/candidateIds mean no restriction; candidateIds come from the search index.
+    // nullsLow: how the database orders nulls, see TransactionSpecifications.after.
+    default List<ExpenseDTO> findPage(List<Long> profileIds, LocalDate startDate, LocalDate endDate, String keyword, Collection<Long> candidateIds,
+                                      TransactionSortField sortField, Sort.Direction direction,
+                                      KeysetCursor after, boolean nullsLow, int limit) {
+        Specification<ExpenseEntity> spec = Specification.allOf(
+                TransactionSpecifications.ownedBy(profileIds),
+                TransactionSpecifications.dateBetween(startDate, endDate),
+                TransactionSpecifications.nameContains(keyword),
+                TransactionSpecifications.idIn(candidateIds),
+                TransactionSpecifications.after(after, nullsLow),
+                excludingSettlements());
+        return findRows(spec, TransactionSpecifications.keysetSort(sortField, direction), limit);
+    }
+
+    static Specification<ExpenseEntity> excludingSettlements() {
+        return (root, query, cb) -> cb.or(cb.isNull(root.get("isSettlement")), cb.isFalse(root.get("isSettlement")));
+    }
+}
@@ -0,0 +1,14 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.dto.ExpenseDTO;
+import in.shivam.rupeeroot.entity.ExpenseEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ExpenseRepositoryCustom {
+
+    // Specification query projected straight into ExpenseDTO rows (category and creator name joined in the same select)
+    List<ExpenseDTO> findRows(Specification<ExpenseEntity> spec, Sort sort, int limit);
+}
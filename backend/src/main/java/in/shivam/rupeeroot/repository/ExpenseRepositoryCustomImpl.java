@@ -0,0 +1,37 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.dto.ExpenseDTO;
+import in.shivam.rupeeroot.entity.CategoryEntity;
+import in.shivam.rupeeroot.entity.ExpenseEntity;
+import in.shivam.rupeeroot.entity.ProfileEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class ExpenseRepositoryCustomImpl implements ExpenseRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    // Same columns, in the same order, as ExpenseRepository.EXPENSE_ROW
+    @Override
+    public List<ExpenseDTO> findRows(Specification<ExpenseEntity> spec, Sort sort, int limit) {
+        return TransactionSpecifications.findRows(entityManager, ExpenseEntity.class, ExpenseDTO.class, spec, sort, limit,
+                (e, cb) -> {
+                    Join<ExpenseEntity, CategoryEntity> c = e.join("category", JoinType.LEFT);
+                    Join<ExpenseEntity, ProfileEntity> p = e.join("profile");
+                    return new Selection<?>[]{
+                            e.get("id"), e.get("name"), e.get("icon"), e.get("amount"), e.get("date"),
+                            c.get("id"), cb.coalesce(c.<String>get("name"), "N/A"),
+                            e.get("createdAt"), e.get("updatedAt"), p.get("fullName"),
+                            e.get("isSplittable"), e.get("isSettlement")
+                    };
+                });
+    }
+}
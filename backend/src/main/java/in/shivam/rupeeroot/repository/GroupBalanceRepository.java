@@ -0,0 +1,47 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.entity.GroupBalanceEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface GroupBalanceRepository extends JpaRepository<GroupBalanceEntity, Long> {
+
+    // Atomic increment that creates the row on first write; MySQL / H2 flavour, see SqlDialect
+    @Modifying
+    @Query(value = "INSERT INTO tbl_group_balances (group_id, profile_id, paid_splittable, settlement_net) "
+            + "VALUES (:groupId, :profileId, :paidDelta, :settlementDelta) "
+            + "ON DUPLICATE KEY UPDATE paid_splittable = paid_splittable + :paidDelta, "
+            + "settlement_net = settlement_net + :settlementDelta", nativeQuery = true)
+    int upsertBalanceMySql(@Param("groupId") String groupId,
+                           @Param("profileId") Long profileId,
+                           @Param("paidDelta") BigDecimal paidDelta,
+                           @Param("settlementDelta") BigDecimal settlementDelta);
+
+    // Same, PostgreSQL flavour
+    @Modifying
+    @Query(value = "INSERT INTO tbl_group_balances (group_id, profile_id, paid_splittable, settlement_net) "
+            + "VALUES (:groupId, :profileId, :paidDelta, :settlementDelta) "
+            + "ON CONFLICT (group_id, profile_id) DO UPDATE SET "
+            + "paid_splittable = tbl_group_balances.paid_splittable + EXCLUDED.paid_splittable, "
+            + "settlement_net = tbl_group_balances.settlement_net + EXCLUDED.settlement_net", nativeQuery = true)
+    int upsertBalancePostgres(@Param("groupId") String groupId,
+                              @Param("profileId") Long profileId,
+                              @Param("paidDelta") BigDecimal paidDelta,
+                              @Param("settlementDelta") BigDecimal settlementDelta);
+
+    List<GroupBalanceEntity> findByGroupId(String groupId);
+
+    // The group's rows, locked until the end of the transaction so writers wait while they are rebuilt
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM GroupBalanceEntity b WHERE b.groupId = :groupId")
+    List<GroupBalanceEntity> findByGroupIdForUpdate(@Param("groupId") String groupId);
+}
@@ -1,18 +1,34 @@
 package in.shivam.rupeeroot.repository;
 
+import in.shivam.rupeeroot.dto.IncomeDTO;
 import in.shivam.rupeeroot.entity.IncomeEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface IncomeRepository extends JpaRepository<IncomeEntity, Long> {
+public interface IncomeRepository extends JpaRepository<IncomeEntity, Long>, JpaSpecificationExecutor<IncomeEntity>, IncomeRepositoryCustom {
+
+    // Projection used by every list path: exactly the IncomeDTO columns (all-args order), category and creator joined in one select
+    String INCOME_ROW = "SELECT new in.shivam.rupeeroot.dto.IncomeDTO(i.id, i.name, i.icon, COALESCE(c.name, 'N/A'), c.id, "
+            + "i.amount, i.date, i.createdAt, i.updatedAt, p.fullName) "
+            + "FROM IncomeEntity i LEFT JOIN i.category c JOIN i.profile p ";
 
     // -------------------------------------------------------
     // EXISTING METHODS (Keep these for backward compatibility)
@@ -42,19 +58,36 @@ public interface IncomeRepository extends JpaRepository<IncomeEntity, Long> {
     // 1. Fetch incomes for multiple users (The Group) between dates
     List<IncomeEntity> findByProfileIdInAndDateBetween(List<Long> profileIds, LocalDate startDate, LocalDate endDate);
 
-    // 2. Fetch top 5 incomes for the whole group
-    List<IncomeEntity> findTop5ByProfileIdInOrderByDateDesc(List<Long> profileIds);
+    // 5. Ledger rebuild: one profile, per month
+    // Row layout: [year, month, sum]
+    @Query("SELECT YEAR(i.date), MONTH(i.date), SUM(i.amount) FROM IncomeEntity i WHERE i.profile.id = :profileId GROUP BY YEAR(i.date), MONTH(i.date)")
+    List<Object[]> sumAmountsByMonth(@Param("profileId") Long profileId);
 
-    // 3. Calculate total income for the whole group
-    @Query("SELECT SUM(i.amount) FROM IncomeEntity i WHERE i.profile.id IN :profileIds")
-    BigDecimal findTotalIncomeByProfileIds(@Param("profileIds") List<Long> profileIds);
+    // 6. List projections (one query per list, no lazy loads in toDTO)
+    // Export for any date range, read through a DB cursor (fetch size hint) inside a read-only transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(INCOME_ROW + "WHERE p.id IN :profileIds AND i.date BETWEEN :startDate AND :endDate ORDER BY i.date, i.id")
+    Stream<IncomeDTO> streamRowsByProfileIdInAndDateBetween(@Param("profileIds") List<Long> profileIds, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
-    // 4. Search/Filter incomes for the whole group
-    List<IncomeEntity> findByProfileIdInAndDateBetweenAndNameContainingIgnoreCase(
-            List<Long> profileIds,
-            LocalDate startDate,
-            LocalDate endDate,
-            String keyword,
-            Sort sort
-    );
-}
\ No newline at end of file
+    @Query(INCOME_ROW + "WHERE p.id IN :profileIds ORDER BY i.date DESC, i.id DESC")
+    List<IncomeDTO> findLatestRowsByProfileIdIn(@Param("profileIds") List<Long> profileIds, Limit limit);
+
+    // Search index build: [id, name] of every listed row of these profiles
+    @Query("SELECT i.id, i.name FROM IncomeEntity i WHERE i.profile.id IN :profileIds")
+    List<Object[]> findIdAndNameByProfileIdIn(@Param("profileIds") List<Long> profileIds);
+
+    // Keyset page for listings: rows after the cursor in (sortField, id) order, at most `limit` rows.
+    // Null dates/keyword/cursor/candidateIds mean no restriction; candidateIds come from the search index.
+    // nullsLow: how the database orders nulls, see TransactionSpecifications.after.
+    default List<IncomeDTO> findPage(List<Long> profileIds, LocalDate startDate, LocalDate endDate, String keyword, Collection<Long> candidateIds,
+                                     TransactionSortField sortField, Sort.Direction direction,
+                                     KeysetCursor after, boolean nullsLow, int limit) {
+        Specification<IncomeEntity> spec = Specification.allOf(
+                TransactionSpecifications.ownedBy(profileIds),
+                TransactionSpecifications.dateBetween(startDate, endDate),
+                TransactionSpecifications.nameContains(keyword),
+                TransactionSpecifications.idIn(candidateIds),
+                TransactionSpecifications.after(after, nullsLow));
+        return findRows(spec, TransactionSpecifications.keysetSort(sortField, direction), limit);
+    }
+}
@@ -0,0 +1,14 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.dto.IncomeDTO;
+import in.shivam.rupeeroot.entity.IncomeEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface IncomeRepositoryCustom {
+
+    // Specification query projected straight into IncomeDTO rows (category and creator name joined in the same select)
+    List<IncomeDTO> findRows(Specification<IncomeEntity> spec, Sort sort, int limit);
+}
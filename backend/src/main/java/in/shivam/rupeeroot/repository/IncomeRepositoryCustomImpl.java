@@ -0,0 +1,36 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.dto.IncomeDTO;
+import in.shivam.rupeeroot.entity.CategoryEntity;
+import in.shivam.rupeeroot.entity.IncomeEntity;
+import in.shivam.rupeeroot.entity.ProfileEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class IncomeRepositoryCustomImpl implements IncomeRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    // Same columns, in the same order, as IncomeRepository.INCOME_ROW
+    @Override
+    public List<IncomeDTO> findRows(Specification<IncomeEntity> spec, Sort sort, int limit) {
+        return TransactionSpecifications.findRows(entityManager, IncomeEntity.class, IncomeDTO.class, spec, sort, limit,
+                (i, cb) -> {
+                    Join<IncomeEntity, CategoryEntity> c = i.join("category", JoinType.LEFT);
+                    Join<IncomeEntity, ProfileEntity> p = i.join("profile");
+                    return new Selection<?>[]{
+                            i.get("id"), i.get("name"), i.get("icon"),
+                            cb.coalesce(c.<String>get("name"), "N/A"), c.get("id"),
+                            i.get("amount"), i.get("date"), i.get("createdAt"), i.get("updatedAt"), p.get("fullName")
+                    };
+                });
+    }
+}
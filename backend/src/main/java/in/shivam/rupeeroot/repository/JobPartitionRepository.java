@@ -0,0 +1,63 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.entity.JobPartitionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Every lease change is one conditional UPDATE in its own transaction; 0 rows means another node holds the partition
+@Repository
+public interface JobPartitionRepository extends JpaRepository<JobPartitionEntity, Long> {
+
+    @Query("SELECT j.partitionNo FROM JobPartitionEntity j WHERE j.jobName = :jobName")
+    List<Integer> findPartitionNosByJobName(@Param("jobName") String jobName);
+
+    Optional<JobPartitionEntity> findByJobNameAndPartitionNo(String jobName, Integer partitionNo);
+
+    // Start a new run on a partition nobody has touched for this run yet
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobPartitionEntity j SET j.runKey = :runKey, j.status = 'RUNNING', j.owner = :owner, j.leaseUntil = :leaseUntil, j.lastId = 0 "
+            + "WHERE j.jobName = :jobName AND j.partitionNo = :partitionNo AND (j.runKey IS NULL OR j.runKey <> :runKey)")
+    int claim(@Param("jobName") String jobName, @Param("partitionNo") int partitionNo, @Param("runKey") LocalDate runKey,
+              @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Take over a partition of this run whose holder stopped renewing; lastId is kept so the work resumes
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobPartitionEntity j SET j.owner = :owner, j.leaseUntil = :leaseUntil "
+            + "WHERE j.jobName = :jobName AND j.partitionNo = :partitionNo AND j.runKey = :runKey "
+            + "AND j.status = 'RUNNING' AND j.leaseUntil < :now")
+    int reclaim(@Param("jobName") String jobName, @Param("partitionNo") int partitionNo, @Param("runKey") LocalDate runKey,
+                @Param("owner") String owner, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Progress plus lease renewal; 0 means the lease was lost and the caller must stop
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobPartitionEntity j SET j.lastId = :lastId, j.leaseUntil = :leaseUntil "
+            + "WHERE j.jobName = :jobName AND j.partitionNo = :partitionNo AND j.owner = :owner AND j.status = 'RUNNING'")
+    int checkpoint(@Param("jobName") String jobName, @Param("partitionNo") int partitionNo, @Param("owner") String owner,
+                   @Param("lastId") long lastId, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobPartitionEntity j SET j.status = 'DONE', j.leaseUntil = NULL "
+            + "WHERE j.jobName = :jobName AND j.partitionNo = :partitionNo AND j.owner = :owner AND j.status = 'RUNNING'")
+    int complete(@Param("jobName") String jobName, @Param("partitionNo") int partitionNo, @Param("owner") String owner);
+
+    // Give a failed partition up at once instead of waiting for the lease to run out
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobPartitionEntity j SET j.leaseUntil = :now "
+            + "WHERE j.jobName = :jobName AND j.partitionNo = :partitionNo AND j.owner = :owner AND j.status = 'RUNNING'")
+    int release(@Param("jobName") String jobName, @Param("partitionNo") int partitionNo, @Param("owner") String owner,
+                @Param("now") LocalDateTime now);
+}
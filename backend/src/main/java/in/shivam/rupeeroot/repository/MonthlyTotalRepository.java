@@ -0,0 +1,62 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.entity.MonthlyTotalEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MonthlyTotalRepository extends JpaRepository<MonthlyTotalEntity, Long> {
+
+    // Atomic increment that creates the row on first write, so concurrent first writes can't collide on the unique key.
+    // MySQL / H2 flavour; see SqlDialect
+    @Modifying
+    @Query(value = "INSERT INTO tbl_monthly_totals (profile_id, month_start, kind, is_settlement, total) "
+            + "VALUES (:profileId, :monthStart, :kind, :isSettlement, :delta) "
+            + "ON DUPLICATE KEY UPDATE total = total + :delta", nativeQuery = true)
+    int upsertTotalMySql(@Param("profileId") Long profileId,
+                         @Param("monthStart") LocalDate monthStart,
+                         @Param("kind") String kind,
+                         @Param("isSettlement") Boolean isSettlement,
+                         @Param("delta") BigDecimal delta);
+
+    // Same, PostgreSQL flavour
+    @Modifying
+    @Query(value = "INSERT INTO tbl_monthly_totals (profile_id, month_start, kind, is_settlement, total) "
+            + "VALUES (:profileId, :monthStart, :kind, :isSettlement, :delta) "
+            + "ON CONFLICT (profile_id, month_start, kind, is_settlement) "
+            + "DO UPDATE SET total = tbl_monthly_totals.total + EXCLUDED.total", nativeQuery = true)
+    int upsertTotalPostgres(@Param("profileId") Long profileId,
+                            @Param("monthStart") LocalDate monthStart,
+                            @Param("kind") String kind,
+                            @Param("isSettlement") Boolean isSettlement,
+                            @Param("delta") BigDecimal delta);
+
+    // --- REBUILD / VERIFY (one profile at a time) ---
+
+    @Query("SELECT DISTINCT t.profileId FROM MonthlyTotalEntity t")
+    List<Long> findProfileIds();
+
+    List<MonthlyTotalEntity> findByProfileId(Long profileId);
+
+    // One profile's ledger rows, locked until the end of the transaction so its writers wait while they are repaired
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM MonthlyTotalEntity t WHERE t.profileId = :profileId")
+    List<MonthlyTotalEntity> findByProfileIdForUpdate(@Param("profileId") Long profileId);
+
+    // Dashboard total for a group - Exclude settlements
+    @Query("SELECT SUM(t.total) FROM MonthlyTotalEntity t WHERE t.profileId IN :profileIds AND t.kind = :kind AND t.isSettlement = false")
+    BigDecimal findTotalByProfileIdsAndKind(@Param("profileIds") List<Long> profileIds, @Param("kind") String kind);
+
+    // One row's total; a scalar query, so it sees an upsert made earlier in the same transaction
+    @Query("SELECT t.total FROM MonthlyTotalEntity t WHERE t.profileId = :profileId AND t.monthStart = :monthStart AND t.kind = :kind AND t.isSettlement = false")
+    BigDecimal findMonthTotal(@Param("profileId") Long profileId, @Param("monthStart") LocalDate monthStart, @Param("kind") String kind);
+}
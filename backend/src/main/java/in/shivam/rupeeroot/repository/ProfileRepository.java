@@ -1,8 +1,13 @@
 package in.shivam.rupeeroot.repository;
 
+import in.shivam.rupeeroot.dto.DigestRecipientDTO;
 import in.shivam.rupeeroot.entity.ProfileEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +22,31 @@ public interface ProfileRepository extends JpaRepository<ProfileEntity, Long> {
     // --- NEW QUERY: Find all family members ---
     List<ProfileEntity> findByGroupId(String groupId);
     // ------------------------------------------
+
+    // Member ids only, for the membership cache
+    @Query("SELECT p.id FROM ProfileEntity p WHERE p.groupId = :groupId ORDER BY p.id")
+    List<Long> findIdsByGroupId(@Param("groupId") String groupId);
+
+    // Every profile, for jobs that work through them one at a time
+    @Query("SELECT p.id FROM ProfileEntity p ORDER BY p.id")
+    List<Long> findAllIds();
+
+    // Daily reminder recipients: every profile in one job partition (MOD(id, partitions)), keyset-paged by id
+    @Query("SELECT new in.shivam.rupeeroot.dto.DigestRecipientDTO(p.id, p.fullName, p.email) FROM ProfileEntity p "
+            + "WHERE p.id > :afterId AND MOD(p.id, :partitions) = :partition ORDER BY p.id")
+    List<DigestRecipientDTO> findRecipientsAfter(@Param("afterId") long afterId, @Param("partition") int partition,
+                                                 @Param("partitions") int partitions, Limit limit);
+
+    // Daily summary recipients: profiles in one job partition with a (non-settlement) expense on the date,
+    // keyset-paged by id. The EXISTS probe is an index lookup on tbl_expenses (profile_id, date, id)
+    @Query("SELECT new in.shivam.rupeeroot.dto.DigestRecipientDTO(p.id, p.fullName, p.email) FROM ProfileEntity p "
+            + "WHERE p.id > :afterId AND MOD(p.id, :partitions) = :partition "
+            + "AND EXISTS (SELECT 1 FROM ExpenseEntity e WHERE e.profile = p AND e.date = :date "
+            + "AND (e.isSettlement IS NULL OR e.isSettlement = false)) ORDER BY p.id")
+    List<DigestRecipientDTO> findDigestRecipientsAfter(@Param("afterId") long afterId, @Param("date") LocalDate date,
+                                                       @Param("partition") int partition, @Param("partitions") int partitions,
+                                                       Limit limit);
+
+    @Query("SELECT DISTINCT p.groupId FROM ProfileEntity p WHERE p.groupId IS NOT NULL AND p.groupId <> ''")
+    List<String> findAllGroupIds();
 }
\ No newline at end of file
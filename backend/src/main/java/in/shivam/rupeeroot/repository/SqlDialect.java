@@ -0,0 +1,34 @@
+package in.shivam.rupeeroot.repository;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+// Which native SQL flavour to use where JPQL has no equivalent (upserts, null ordering):
+// PostgreSQL in production, MySQL (or H2 in MySQL mode) everywhere else
+@Component
+public class SqlDialect {
+
+    private final boolean postgres;
+
+    public SqlDialect(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            this.postgres = product != null && product.toLowerCase().contains("postgres");
+        } catch (MetaDataAccessException e) {
+            throw new RuntimeException("Could not detect the database type: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+
+    // Whether ORDER BY puts NULL below every value (MySQL, H2) rather than above it (PostgreSQL)
+    public boolean sortsNullsLow() {
+        return !postgres;
+    }
+}
@@ -0,0 +1,116 @@
+package in.shivam.rupeeroot.repository;
+
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Criteria shared by the expense and income listings (both entities have profile, date, name, amount and id).
+ * Null arguments mean "no restriction".
+ */
+public final class TransactionSpecifications {
+
+    private TransactionSpecifications() {
+    }
+
+    public static <T> Specification<T> ownedBy(List<Long> profileIds) {
+        return (root, query, cb) -> root.get("profile").get("id").in(profileIds);
+    }
+
+    public static <T> Specification<T> dateBetween(LocalDate startDate, LocalDate endDate) {
+        return (root, query, cb) -> {
+            if (startDate != null && endDate != null) {
+                return cb.between(root.get("date"), startDate, endDate);
+            }
+            if (startDate != null) {
+                return cb.greaterThanOrEqualTo(root.get("date"), startDate);
+            }
+            if (endDate != null) {
+                return cb.lessThanOrEqualTo(root.get("date"), endDate);
+            }
+            return null;
+        };
+    }
+
+    public static <T> Specification<T> nameContains(String keyword) {
+        return (root, query, cb) -> keyword == null || keyword.isEmpty()
+                ? null
+                : cb.like(cb.lower(root.get("name")), "%" + keyword.toLowerCase() + "%");
+    }
+
+    public static <T> Specification<T> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> ids == null ? null : root.get("id").in(ids);
+    }
+
+    /**
+     * Rows strictly after the cursor in (field, id) order:
+     * field beyond value, or field equal to value and id beyond the last id.
+     * The sort columns are nullable and ORDER BY keeps the database's own null placement (so the
+     * (profile_id, field, id) index still serves it): nullsLow is true where NULL sorts below every value
+     * (MySQL, H2), false where it sorts above (PostgreSQL). Null rows come first or last accordingly,
+     * ordered among themselves by id.
+     */
+    public static <T> Specification<T> after(KeysetCursor cursor, boolean nullsLow) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            boolean ascending = cursor.direction().isAscending();
+            boolean nullsFirst = nullsLow == ascending;
+            Expression<Comparable<Object>> field = root.get(cursor.field().getProperty());
+            Expression<Long> id = root.get("id");
+            @SuppressWarnings("unchecked")
+            Comparable<Object> value = (Comparable<Object>) cursor.typedValue();
+            if (value == null) {
+                Predicate laterNull = cb.and(cb.isNull(field), beyond(cb, id, cursor.id(), ascending));
+                return nullsFirst ? cb.or(laterNull, cb.isNotNull(field)) : laterNull;
+            }
+            // Comparisons never match a null field, so null rows only come in through the last branch
+            Predicate later = cb.or(
+                    beyond(cb, field, value, ascending),
+                    cb.and(cb.equal(field, value), beyond(cb, id, cursor.id(), ascending)));
+            return nullsFirst ? later : cb.or(later, cb.isNull(field));
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate beyond(CriteriaBuilder cb, Expression<? extends Y> path, Y value, boolean ascending) {
+        return ascending ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+    }
+
+    public static Sort keysetSort(TransactionSortField field, Sort.Direction direction) {
+        return Sort.by(direction, field.getProperty()).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * Runs a specification as a constructor projection: one query selecting only the given columns,
+     * sorted and capped at limit rows. Used by the *RepositoryCustomImpl fragments.
+     */
+    static <T, R> List<R> findRows(EntityManager entityManager, Class<T> entityType, Class<R> rowType,
+                                   Specification<T> spec, Sort sort, int limit,
+                                   BiFunction<Root<T>, CriteriaBuilder, Selection<?>[]> columns) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(rowType);
+        Root<T> root = query.from(entityType);
+        query.select(cb.construct(rowType, columns.apply(root, cb)));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
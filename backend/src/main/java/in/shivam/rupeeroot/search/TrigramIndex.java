@@ -0,0 +1,141 @@
+package in.shivam.rupeeroot.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory substring index over row names: every lower-cased name is split into 3-character windows,
+ * and each trigram maps to the ids of the names that contain it.
+ * A keyword of 3+ characters is resolved by intersecting the postings of its trigrams and then checking
+ * the surviving names with contains(), so results match LOWER(name) LIKE '%keyword%' exactly.
+ * Thread safe; writes take an exclusive lock, searches a shared one.
+ */
+public class TrigramIndex {
+
+    public static final int MIN_KEYWORD_LENGTH = 3;
+
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<Long, Set<Long>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(long id, String name) {
+        String normalized = normalize(name);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            names.put(id, normalized);
+            for (long trigram : trigrams(normalized)) {
+                postings.computeIfAbsent(trigram, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        String previous = names.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (long trigram : trigrams(previous)) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids (ascending) whose name contains the keyword, ignoring case.
+     * Returns null when the index cannot answer cheaply: keyword shorter than 3 characters,
+     * or more than maxResults matches (a plain scan is as good at that point).
+     */
+    public long[] search(String keyword, int maxResults) {
+        String needle = normalize(keyword);
+        if (needle.length() < MIN_KEYWORD_LENGTH) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (long trigram : trigrams(needle)) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids == null) {
+                    return new long[0];
+                }
+                lists.add(ids);
+            }
+            // Walk the rarest trigram and probe the others
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> smallest = lists.get(0);
+            long[] matches = new long[Math.min(smallest.size(), maxResults + 1)];
+            int count = 0;
+            for (Long id : smallest) {
+                if (!inAll(lists, id) || !names.get(id).contains(needle)) {
+                    continue;
+                }
+                if (count == maxResults) {
+                    return null;
+                }
+                matches[count++] = id;
+            }
+            long[] result = Arrays.copyOf(matches, count);
+            Arrays.sort(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean inAll(List<Set<Long>> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    // Three UTF-16 chars packed into one long
+    private static Set<Long> trigrams(String s) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + MIN_KEYWORD_LENGTH <= s.length(); i++) {
+            result.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package in.shivam.rupeeroot.security;
+
+import in.shivam.rupeeroot.entity.ProfileEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The authenticated user, loaded once per request by JwtRequestFilter (one tbl_profiles lookup)
+ * and kept in the SecurityContext. Hot paths read identity, group and budget from here
+ * instead of looking the profile up by email again.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class ProfilePrincipal implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final String fullName;
+    private final String groupId;
+    private final BigDecimal budgetLimit;
+
+    public static ProfilePrincipal from(ProfileEntity profile) {
+        return ProfilePrincipal.builder()
+                .id(profile.getId())
+                .email(profile.getEmail())
+                .password(profile.getPassword())
+                .fullName(profile.getFullName())
+                .groupId(profile.getGroupId())
+                .budgetLimit(profile.getBudgetLimit())
+                .build();
+    }
+
+    public boolean isInGroup() {
+        return groupId != null && !groupId.isEmpty();
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.emptyList();
+    }
+}
@@ -2,15 +2,13 @@ package in.shivam.rupeeroot.service;
 
 import in.shivam.rupeeroot.entity.ProfileEntity;
 import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
 @RequiredArgsConstructor
 public class AppUserDetailsService implements UserDetailsService {
@@ -20,10 +18,7 @@ public class AppUserDetailsService implements UserDetailsService {
 
         ProfileEntity existingProfile = profileRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Profile not found with email: " + email));
-        return User.builder()
-                .username(existingProfile.getEmail())
-                .password(existingProfile.getPassword())
-                .authorities(Collections.emptyList())
-                .build();
+        // The principal carries id/group/budget so the rest of the request needs no further lookups
+        return ProfilePrincipal.from(existingProfile);
     }
 }
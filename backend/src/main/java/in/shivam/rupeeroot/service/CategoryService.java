@@ -4,6 +4,8 @@ import in.shivam.rupeeroot.dto.CategoryDTO;
 import in.shivam.rupeeroot.entity.CategoryEntity;
 import in.shivam.rupeeroot.entity.ProfileEntity;
 import in.shivam.rupeeroot.repository.CategoryRepository;
+import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -15,35 +17,36 @@ public class CategoryService {
 
     private final ProfileService profileService;
     private final CategoryRepository categoryRepository;
+    private final ProfileRepository profileRepository;
 
     //save category
     public CategoryDTO saveCategory(CategoryDTO categoryDTO) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         if (categoryRepository.existsByNameAndProfileId(categoryDTO.getName(), profile.getId())) {
             throw new RuntimeException("Category with this name already exists");
         }
 
-        CategoryEntity newCategory = toEntity(categoryDTO, profile);
+        CategoryEntity newCategory = toEntity(categoryDTO, profileRepository.getReferenceById(profile.getId()));
         newCategory = categoryRepository.save(newCategory);
         return toDTO(newCategory);
     }
 
     //get categories for current user
     public List<CategoryDTO> getCategoriesForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         List<CategoryEntity> categories = categoryRepository.findByProfileId(profile.getId());
         return categories.stream().map(this::toDTO).toList();
     }
 
     //get categories by type for current user
     public List<CategoryDTO> getCategoriesByTypeForCurrentUser(String type) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         List<CategoryEntity> entities = categoryRepository.findByTypeAndProfileId(type, profile.getId());
         return entities.stream().map(this::toDTO).toList();
     }
 
     public CategoryDTO updateCategory(Long categoryId, CategoryDTO dto) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         CategoryEntity existingCategory = categoryRepository.findByIdAndProfileId(categoryId, profile.getId())
                 .orElseThrow(() -> new RuntimeException("Category not found or not accessible"));
         existingCategory.setName(dto.getName());
@@ -0,0 +1,239 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.dto.ChatMessageDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages. Messages arrive fully numbered (messageId, seq, timestamp)
+ * and are queued; one writer thread inserts them with a JDBC batch once app.chat.write.batch-size are
+ * waiting or the oldest has waited app.chat.write.max-delay.
+ * ack-after-flush (default): the returned future completes when the batch holding the message commits, so a
+ * message is only broadcast once stored. fire-and-forget: it completes at once, and the messages still
+ * queued are lost if the node dies. Either way the sending thread does not wait for the database.
+ * When the queue stays full for app.chat.write.enqueue-timeout the sender inserts its own message,
+ * which slows senders down to what the database can take instead of dropping anything.
+ */
+@Service
+@Slf4j
+public class ChatMessageWriter {
+
+    public enum Mode { ACK_AFTER_FLUSH, FIRE_AND_FORGET }
+
+    private static final String INSERT_SQL = "INSERT INTO tbl_chat_messages "
+            + "(message_id, group_id, seq, content, sender_name, sender_email, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String STORED_SQL = "SELECT COUNT(*) FROM tbl_chat_messages WHERE message_id = ?";
+
+    private record Pending(ChatMessageDTO message, CompletableFuture<Void> flushed) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Mode mode;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Duration enqueueTimeout;
+    private final BlockingQueue<Pending> queue;
+    // Highest seq handed to this writer per group, stored or not yet; see ChatService.nextSeq
+    private final Map<String, Long> highestSeqs = new ConcurrentHashMap<>();
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter overflows;
+
+    private final Thread writer = new Thread(this::runWriter, "chat-writer");
+    private volatile boolean running = true;
+
+    public ChatMessageWriter(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.chat.write.mode:ack-after-flush}") Mode mode,
+                             @Value("${app.chat.write.queue-capacity:10000}") int queueCapacity,
+                             @Value("${app.chat.write.batch-size:500}") int batchSize,
+                             @Value("${app.chat.write.max-delay:20ms}") Duration maxDelay,
+                             @Value("${app.chat.write.enqueue-timeout:1s}") Duration enqueueTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.enqueueTimeout = enqueueTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("chat.write.queue.depth", queue, BlockingQueue::size)
+                .description("Chat messages waiting to be inserted")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("chat.write.flush")
+                .description("Time to insert and commit one batch of chat messages")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("chat.write.batch.size")
+                .description("Chat messages per batch insert")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("chat.write.overflow")
+                .description("Chat messages inserted by the sender because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Stop taking new work and flush whatever is queued before the datasource goes away
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (!queue.isEmpty()) {
+            log.error("Chat writer stopped with {} messages unsaved", queue.size());
+        }
+    }
+
+    /**
+     * Queues the message for insertion. The future completes once the message is committed in ack-after-flush
+     * mode (exceptionally if it could not be saved), straight away in fire-and-forget mode. Blocks only
+     * while the queue is full.
+     */
+    public CompletableFuture<Void> write(ChatMessageDTO message) {
+        highestSeqs.merge(message.getGroupId(), message.getSeq(), Math::max);
+        Pending pending = new Pending(message, new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = running && queue.offer(pending, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            overflows.increment();
+            try {
+                insert(message);
+            } catch (Exception e) {
+                log.error("Chat message {} in group {} was not saved: {}",
+                        message.getMessageId(), message.getGroupId(), e.getMessage());
+                return CompletableFuture.failedFuture(e);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return mode == Mode.ACK_AFTER_FLUSH ? pending.flushed() : CompletableFuture.completedFuture(null);
+    }
+
+    // Highest seq this node has numbered for the group, including messages still queued; 0 if none
+    public long highestSeq(String groupId) {
+        return highestSeqs.getOrDefault(groupId, 0L);
+    }
+
+    // --- WRITER THREAD ---
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Fill up to batch-size, waiting at most max-delay from the first message
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Only shutdown interrupts; save what was collected and let the loop drain the rest
+                running = false;
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (Exception e) {
+                log.error("Chat writer failed: {}", e.getMessage(), e);
+                batch.forEach(p -> p.flushed().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, p) -> bind(ps, p.message())));
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batch.forEach(p -> p.flushed().complete(null));
+        } catch (Exception e) {
+            // Whole batch rolled back: retry row by row so one bad message does not lose the others
+            log.warn("Chat batch insert of {} failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Pending p : batch) {
+                try {
+                    insert(p.message());
+                    p.flushed().complete(null);
+                } catch (Exception rowError) {
+                    log.error("Chat message {} in group {} was not saved: {}",
+                            p.message().getMessageId(), p.message().getGroupId(), rowError.getMessage());
+                    p.flushed().completeExceptionally(rowError);
+                }
+            }
+        } finally {
+            batchSizes.record(batch.size());
+        }
+    }
+
+    private void insert(ChatMessageDTO message) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, message));
+        } catch (DuplicateKeyException e) {
+            // Already stored, e.g. by a batch that failed after its commit was sent. Any other clash
+            // (a seq another message already holds) means this message is not stored and must fail
+            Integer stored = jdbcTemplate.queryForObject(STORED_SQL, Integer.class, message.getMessageId());
+            if (stored == null || stored == 0) {
+                throw e;
+            }
+        }
+    }
+
+    private void bind(PreparedStatement ps, ChatMessageDTO message) throws SQLException {
+        ps.setString(1, message.getMessageId());
+        ps.setString(2, message.getGroupId());
+        ps.setLong(3, message.getSeq());
+        ps.setString(4, message.getContent());
+        ps.setString(5, message.getSenderName());
+        ps.setString(6, message.getSenderEmail());
+        ps.setTimestamp(7, Timestamp.valueOf(message.getTimestamp()));
+    }
+}
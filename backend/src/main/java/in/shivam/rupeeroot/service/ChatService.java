@@ -1,50 +1,278 @@
 package in.shivam.rupeeroot.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import in.shivam.rupeeroot.dto.ChatMessageDTO;
+import in.shivam.rupeeroot.dto.CursorPageDTO;
 import in.shivam.rupeeroot.entity.ChatMessage;
 import in.shivam.rupeeroot.repository.ChatMessageRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.UUID;
 
+/**
+ * Group chat storage. Every message gets the next per-group sequence number from a Redis INCR
+ * (seeded from the highest seq stored, buffered or queued when the counter is missing), and the newest app.chat.buffer-size messages of
+ * each group are kept in a Redis list, shared by all nodes. History pages and reconnect resumes are
+ * served from that list when it holds the whole requested range, and from the (group_id, seq) index otherwise.
+ * The table stays the source of truth; the list is refilled from it whenever it misses the newest page.
+ * Rows are written behind by ChatMessageWriter, in batches.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class ChatService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String SEQ_PREFIX = "rupeeroot:chat:seq:";
+    private static final String RECENT_PREFIX = "rupeeroot:chat:recent:";
+
     private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final Counter bufferReads;
+    private final Counter dbReads;
+
+    public ChatService(ChatMessageRepository chatMessageRepository,
+                       ChatMessageWriter chatMessageWriter,
+                       StringRedisTemplate redisTemplate,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.chat.buffer-size:200}") int bufferSize) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatMessageWriter = chatMessageWriter;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.bufferReads = counter(meterRegistry, "buffer");
+        this.dbReads = counter(meterRegistry, "db");
+    }
+
+    private Counter counter(MeterRegistry registry, String source) {
+        return Counter.builder("chat.history.reads")
+                .description("Chat history pages and resumes by where they were served from")
+                .tag("source", source)
+                .register(registry);
+    }
+
+    public static int clampPageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    // --- WRITE SIDE ---
 
-    public ChatMessageDTO saveMessage(ChatMessageDTO dto) {
-        ChatMessage entity = ChatMessage.builder()
+    /**
+     * Numbers the message and hands it to the write-behind writer. Completes with the numbered message when it
+     * may be broadcast: once committed, or at once in fire-and-forget mode. Completes on the writer thread, so
+     * callers should only do quick work on it.
+     */
+    public CompletableFuture<ChatMessageDTO> saveMessage(ChatMessageDTO dto) {
+        ChatMessageDTO message = ChatMessageDTO.builder()
+                .messageId(UUID.randomUUID().toString())
                 .content(dto.getContent())
                 .senderName(dto.getSenderName())
                 .senderEmail(dto.getSenderEmail())
                 .groupId(dto.getGroupId())
+                .timestamp(LocalDateTime.now())
+                .seq(nextSeq(dto.getGroupId()))
                 .build();
 
-        ChatMessage saved = chatMessageRepository.save(entity);
+        return chatMessageWriter.write(message).thenApply(saved -> {
+            remember(message);
+            return message;
+        });
+    }
+
+    private long nextSeq(String groupId) {
+        return reserveSeqs(groupId, 1);
+    }
+
+    // Takes count consecutive numbers off the group's counter in one INCRBY and returns the last of them
+    private long reserveSeqs(String groupId, int count) {
+        String key = SEQ_PREFIX + groupId;
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            // Counter lost (new group, Redis flushed); only one node's seed wins
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(highestKnownSeq(groupId)));
+        }
+        Long last = redisTemplate.opsForValue().increment(key, count);
+        return last != null ? last : 0L;
+    }
+
+    // The table alone misses messages still queued in a writer: also count the ring buffer (every node's
+    // sent messages once stored, at once in fire-and-forget mode) and what this node's writer has been handed
+    private long highestKnownSeq(String groupId) {
+        Long stored = chatMessageRepository.findMaxSeq(groupId);
+        NavigableMap<Long, ChatMessageDTO> buffer = buffered(groupId);
+        long highest = stored != null ? stored : 0L;
+        if (!buffer.isEmpty()) {
+            highest = Math.max(highest, buffer.lastKey());
+        }
+        return Math.max(highest, chatMessageWriter.highestSeq(groupId));
+    }
+
+    // Append to the group's ring buffer and cut it back to size; the table already has the message
+    private void remember(ChatMessageDTO message) {
+        String key = RECENT_PREFIX + message.getGroupId();
+        try {
+            redisTemplate.opsForList().rightPush(key, objectMapper.writeValueAsString(message));
+            redisTemplate.opsForList().trim(key, -bufferSize, -1);
+        } catch (Exception e) {
+            // A gap in the buffer only sends readers to the DB
+            log.warn("Chat buffer append failed for group {}: {}", message.getGroupId(), e.getMessage());
+        }
+    }
 
-        // Return DTO with the generated timestamp
+    // --- READ SIDE ---
+
+    /**
+     * One page of history, oldest first: the newest messages, or those just before the given seq.
+     * nextCursor is the seq to pass as before for the next older page, null at the start of the chat.
+     */
+    public CursorPageDTO<ChatMessageDTO> getChatHistory(String groupId, Long before, int limit) {
+        NavigableMap<Long, ChatMessageDTO> buffer = buffered(groupId);
+        long to = before != null ? before - 1 : (buffer.isEmpty() ? 0 : buffer.lastKey());
+        long from = Math.max(1, to - limit + 1);
+
+        List<ChatMessageDTO> items;
+        boolean hasMore;
+        if (to >= 1 && covers(buffer, from, to)) {
+            bufferReads.increment();
+            items = new ArrayList<>(buffer.subMap(from, true, to, true).values());
+            hasMore = from > 1;
+        } else {
+            dbReads.increment();
+            // Newest page missed (cold or gappy buffer): read a whole buffer's worth and refill it
+            boolean refill = before == null;
+            int fetch = refill ? Math.max(limit, bufferSize) : limit + 1;
+            List<ChatMessage> rows = before != null
+                    ? chatMessageRepository.findByGroupIdAndSeqLessThanOrderBySeqDesc(groupId, before, Limit.of(fetch))
+                    : chatMessageRepository.findByGroupIdOrderBySeqDesc(groupId, Limit.of(fetch));
+            List<ChatMessageDTO> newestFirst = rows.stream().map(this::toDTO).toList();
+            if (refill && !newestFirst.isEmpty()) {
+                refill(groupId, newestFirst);
+            }
+            hasMore = newestFirst.size() > limit;
+            items = new ArrayList<>(newestFirst.subList(0, Math.min(limit, newestFirst.size())));
+            Collections.reverse(items);
+        }
+
+        String nextCursor = hasMore && !items.isEmpty() ? String.valueOf(items.get(0).getSeq()) : null;
+        return CursorPageDTO.<ChatMessageDTO>builder().items(items).nextCursor(nextCursor).build();
+    }
+
+    /**
+     * Messages after the given seq, oldest first, at most limit of them (a client that gets a full
+     * batch asks again from the last seq). Served from the buffer when it still holds seq + 1 onwards.
+     */
+    public List<ChatMessageDTO> getMessagesSince(String groupId, long afterSeq, int limit) {
+        NavigableMap<Long, ChatMessageDTO> buffer = buffered(groupId);
+        if (!buffer.isEmpty() && (afterSeq >= buffer.lastKey() || covers(buffer, afterSeq + 1, buffer.lastKey()))) {
+            bufferReads.increment();
+            return buffer.tailMap(afterSeq, false).values().stream().limit(limit).toList();
+        }
+        dbReads.increment();
+        return chatMessageRepository.findByGroupIdAndSeqGreaterThanOrderBySeqAsc(groupId, afterSeq, Limit.of(limit))
+                .stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    // Buffer contents keyed by seq: concurrent senders may push slightly out of order, and a refill may repeat entries
+    private NavigableMap<Long, ChatMessageDTO> buffered(String groupId) {
+        NavigableMap<Long, ChatMessageDTO> messages = new TreeMap<>();
+        try {
+            List<String> entries = redisTemplate.opsForList().range(RECENT_PREFIX + groupId, 0, -1);
+            if (entries != null) {
+                for (String entry : entries) {
+                    ChatMessageDTO message = objectMapper.readValue(entry, ChatMessageDTO.class);
+                    if (message.getSeq() != null) {
+                        messages.put(message.getSeq(), message);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Chat buffer read failed for group {}: {}", groupId, e.getMessage());
+            messages.clear();
+        }
+        return messages;
+    }
+
+    // True when every seq in [from, to] is present
+    private boolean covers(NavigableMap<Long, ChatMessageDTO> buffer, long from, long to) {
+        return buffer.subMap(from, true, to, true).size() == to - from + 1;
+    }
+
+    private void refill(String groupId, List<ChatMessageDTO> newestFirst) {
+        String key = RECENT_PREFIX + groupId;
+        try {
+            List<String> entries = new ArrayList<>();
+            for (ChatMessageDTO message : newestFirst.subList(0, Math.min(newestFirst.size(), bufferSize))) {
+                if (message.getSeq() != null) { // not numbered yet, see backfillSequences
+                    entries.add(objectMapper.writeValueAsString(message));
+                }
+            }
+            if (entries.isEmpty()) {
+                return;
+            }
+            // LPUSH adds each value at the head in turn, so pushing newest first leaves the oldest at the head;
+            // messages sent meanwhile are already in the list and stay behind them as the newest
+            redisTemplate.opsForList().leftPushAll(key, entries);
+            redisTemplate.opsForList().trim(key, -bufferSize, -1);
+        } catch (Exception e) {
+            log.warn("Chat buffer refill failed for group {}: {}", groupId, e.getMessage());
+        }
+    }
+
+    private ChatMessageDTO toDTO(ChatMessage msg) {
         return ChatMessageDTO.builder()
-                .content(saved.getContent())
-                .senderName(saved.getSenderName())
-                .senderEmail(saved.getSenderEmail())
-                .groupId(saved.getGroupId())
-                .timestamp(saved.getTimestamp())
+                .messageId(msg.getMessageId())
+                .content(msg.getContent())
+                .senderName(msg.getSenderName())
+                .senderEmail(msg.getSenderEmail())
+                .groupId(msg.getGroupId())
+                .timestamp(msg.getTimestamp())
+                .seq(msg.getSeq())
                 .build();
     }
 
-    public List<ChatMessageDTO> getChatHistory(String groupId) {
-        return chatMessageRepository.findByGroupIdOrderByTimestampAsc(groupId)
-                .stream()
-                .map(msg -> ChatMessageDTO.builder()
-                        .content(msg.getContent())
-                        .senderName(msg.getSenderName())
-                        .senderEmail(msg.getSenderEmail())
-                        .groupId(msg.getGroupId())
-                        .timestamp(msg.getTimestamp())
-                        .build())
-                .collect(Collectors.toList());
-    }
-}
\ No newline at end of file
+    // --- SEQUENCE BACKFILL ---
+
+    // Messages stored before seq existed get numbers in id order, continuing after any already assigned.
+    // The numbers are reserved on the shared counter first, so a sender on another node can't be given one of them
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillSequences() {
+        for (String groupId : chatMessageRepository.findGroupIdsWithoutSeq()) {
+            List<Long> ids = chatMessageRepository.findIdsWithoutSeq(groupId);
+            if (ids.isEmpty()) {
+                continue;
+            }
+            long seq = reserveSeqs(groupId, ids.size()) - ids.size();
+            for (Long id : ids) {
+                chatMessageRepository.setSeq(id, ++seq);
+            }
+            log.info("Chat sequence backfill: group {}, {} messages numbered", groupId, ids.size());
+        }
+    }
+}
@@ -3,11 +3,11 @@ package in.shivam.rupeeroot.service;
 import in.shivam.rupeeroot.dto.ExpenseDTO;
 import in.shivam.rupeeroot.dto.IncomeDTO;
 import in.shivam.rupeeroot.dto.RecentTransactionDTO;
-import in.shivam.rupeeroot.entity.ProfileEntity;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.Cacheable; // Import this
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,14 +22,10 @@ public class DashboardService {
 
     private final IncomeService incomeService;
     private final ExpenseService expenseService;
-    private final ProfileService profileService;
-
-    // Updated signature to accept userId for the Cache Key
-    @Cacheable(value = "dashboard", key = "#userId")
-    public Map<String, Object> getDashboardData(Long userId) {
-        // We verify the current profile to ensure consistency
-        ProfileEntity profile = profileService.getCurrentProfile();
 
+    // Cache key is the group's scope plus its current generation, e.g. "g:AB12CD34:v7"
+    @Cacheable(value = "dashboard", key = "#cacheKey")
+    public Map<String, Object> getDashboardData(String cacheKey) {
         Map<String, Object> returnValue = new LinkedHashMap<>();
 
         List<IncomeDTO> latestIncomes = incomeService.getLatest5IncomesForCurrentUser();
@@ -72,11 +68,12 @@ public class DashboardService {
                     return cmp;
                 }).collect(Collectors.toList());
 
-        returnValue.put("totalBalance",
-                incomeService.getTotalIncomeForCurrentUser()
-                        .subtract(expenseService.getTotalExpenseForCurrentUser()));
-        returnValue.put("totalIncome", incomeService.getTotalIncomeForCurrentUser());
-        returnValue.put("totalExpense", expenseService.getTotalExpenseForCurrentUser());
+        BigDecimal totalIncome = incomeService.getTotalIncomeForCurrentUser();
+        BigDecimal totalExpense = expenseService.getTotalExpenseForCurrentUser();
+
+        returnValue.put("totalBalance", totalIncome.subtract(totalExpense));
+        returnValue.put("totalIncome", totalIncome);
+        returnValue.put("totalExpense", totalExpense);
         returnValue.put("recent5Expenses", latestExpenses);
         returnValue.put("recent5Incomes", latestIncomes);
         returnValue.put("recentTransactions", recentTransactions);
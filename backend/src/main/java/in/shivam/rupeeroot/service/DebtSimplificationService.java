@@ -1,138 +1,298 @@
 package in.shivam.rupeeroot.service;
 
+import in.shivam.rupeeroot.dto.DebtPayerTotalDTO;
 import in.shivam.rupeeroot.dto.DebtSettlementDTO;
-import in.shivam.rupeeroot.entity.ExpenseEntity;
+import in.shivam.rupeeroot.dto.DebtSettlementTotalDTO;
+import in.shivam.rupeeroot.dto.DebtTransactionDTO;
 import in.shivam.rupeeroot.entity.ProfileEntity;
+import in.shivam.rupeeroot.util.ZeroSumPartition;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Works in long paise over arrays indexed by member ordinal (members sorted by id).
+ * Splittable expenses are summed once per payer and the group total is shared out in O(members),
+ * instead of debiting every member for every expense; the rounding remainder goes one paisa at a time
+ * to the lowest ordinals, so balances always sum to exactly zero.
+ * The matching step tries for the fewest transfers on small groups (see settle).
+ */
 @Service
 @RequiredArgsConstructor
 public class DebtSimplificationService {
 
+    public static final String STRATEGY_EXACT = "EXACT";
+    public static final String STRATEGY_GREEDY = "GREEDY";
+    public static final String STRATEGY_GREEDY_TIMEOUT = "GREEDY_TIMEOUT"; // exact solver ran out of budget
+
+    // Balances within 10 paise of zero count as settled
+    private static final long TOLERANCE_PAISE = 10;
+
+    @Value("${app.debts.exact-solver.enabled:true}")
+    private boolean exactSolverEnabled = true;
+
+    // Members with a non-zero balance; the solver is exponential in this
+    @Value("${app.debts.exact-solver.max-members:20}")
+    private int exactMaxMembers = 20;
+
+    @Value("${app.debts.exact-solver.budget:50ms}")
+    private Duration exactBudget = Duration.ofMillis(50);
+
     /**
      * Main Algorithm Method
      * Input: All Expenses of a Group, All Members of a Group
      * Output: Simplified List of "Who pays Whom"
      */
-    public List<DebtSettlementDTO> simplifyDebts(List<ExpenseEntity> groupExpenses, List<ProfileEntity> groupMembers) {
+    public List<DebtSettlementDTO> simplifyDebts(List<DebtTransactionDTO> groupExpenses, List<ProfileEntity> groupMembers) {
+        if (groupMembers.size() <= 1) {
+            return List.of();
+        }
+        List<ProfileEntity> members = byId(groupMembers);
+        return simplify(members, replay(idsOf(members), groupExpenses));
+    }
 
-        // --- 1. FILTERING STEP (Updated) ---
-        // We consider two types of transactions:
-        // A. Normal Expenses that are Splittable (isSplittable = true)
-        // B. Settlement Transactions (isSettlement = true)
-        List<ExpenseEntity> validTransactions = groupExpenses.stream()
-                .filter(e -> Boolean.TRUE.equals(e.getIsSplittable()) || Boolean.TRUE.equals(e.getIsSettlement()))
-                .collect(Collectors.toList());
+    /**
+     * Same result from SQL aggregates (ExpenseRepository.sumSplittableByPayer / sumSettlementsByPayerAndReceiver)
+     * instead of one row per expense.
+     */
+    public List<DebtSettlementDTO> simplifyDebts(List<DebtPayerTotalDTO> payerTotals,
+                                                 List<DebtSettlementTotalDTO> settlementTotals,
+                                                 List<ProfileEntity> groupMembers) {
+        if (groupMembers.size() <= 1) {
+            return List.of();
+        }
+        List<ProfileEntity> members = byId(groupMembers);
+        return simplify(members, replay(idsOf(members), payerTotals, settlementTotals));
+    }
 
-        if (validTransactions.isEmpty() || groupMembers.size() <= 1) {
+    private List<DebtSettlementDTO> simplify(List<ProfileEntity> members, MemberTotals totals) {
+        if (totals.isEmpty()) {
             return List.of();
         }
+        String[] names = members.stream().map(ProfileEntity::getFullName).toArray(String[]::new);
+        return settle(totals.ids(), names, netBalances(totals.paidSplittable(), totals.settlementNet()));
+    }
+
+    // Members by ordinal
+    private static List<ProfileEntity> byId(List<ProfileEntity> groupMembers) {
+        List<ProfileEntity> members = new ArrayList<>(groupMembers);
+        members.sort(Comparator.comparing(ProfileEntity::getId));
+        return members;
+    }
 
-        // Step 2: Calculate Net Balance for each user
-        Map<Long, BigDecimal> netBalanceMap = new HashMap<>();
-        Map<Long, String> nameMap = new HashMap<>();
+    private static long[] idsOf(List<ProfileEntity> members) {
+        return members.stream().mapToLong(ProfileEntity::getId).toArray();
+    }
 
-        // Initialize everyone with 0
-        for (ProfileEntity member : groupMembers) {
-            netBalanceMap.put(member.getId(), BigDecimal.ZERO);
-            nameMap.put(member.getId(), member.getFullName());
+    /**
+     * Per-member totals in paise for the given member ids (ascending), from raw transactions.
+     * We consider two types of transactions:
+     * A. Normal Expenses that are Splittable (isSplittable = true) -> payer's splittable total
+     * B. Settlement Transactions (isSettlement = true) -> direct transfer payer -> receiver
+     * Transactions whose payer or receiver is not in ids are skipped.
+     */
+    public MemberTotals replay(long[] ids, List<DebtTransactionDTO> transactions) {
+        int n = ids.length;
+        Map<Long, Integer> ordinals = ordinals(ids);
+        long[] paidSplittable = new long[n];
+        long[] settlementNet = new long[n];
+        boolean any = false;
+        for (DebtTransactionDTO tx : transactions) {
+            Integer payer = ordinals.get(tx.getPayerId());
+            if (payer == null || tx.getAmount() == null) {
+                continue; // not (or no longer) a member
+            }
+            long amount = toPaise(tx.getAmount());
+            if (Boolean.TRUE.equals(tx.getIsSettlement()) && tx.getSettledToId() != null) {
+                Integer receiver = ordinals.get(tx.getSettledToId());
+                if (receiver == null) {
+                    continue;
+                }
+                // Payer gives money -> balance goes up; receiver gets money -> balance goes down
+                settlementNet[payer] += amount;
+                settlementNet[receiver] -= amount;
+                any = true;
+            } else if (Boolean.TRUE.equals(tx.getIsSplittable()) || Boolean.TRUE.equals(tx.getIsSettlement())) {
+                paidSplittable[payer] += amount;
+                any = true;
+            }
         }
+        return new MemberTotals(ids, paidSplittable, settlementNet, !any);
+    }
 
-        // Step 3: Process Transactions
-        for (ExpenseEntity expense : validTransactions) {
-            Long payerId = expense.getProfile().getId();
-            BigDecimal amount = expense.getAmount();
+    /**
+     * Per-member totals in paise from the SQL aggregates: one row per payer, one per (payer, receiver).
+     * Rows for profiles that are not in ids are skipped.
+     */
+    public MemberTotals replay(long[] ids, List<DebtPayerTotalDTO> payerTotals, List<DebtSettlementTotalDTO> settlementTotals) {
+        Map<Long, Integer> ordinals = ordinals(ids);
+        long[] paidSplittable = new long[ids.length];
+        long[] settlementNet = new long[ids.length];
+        boolean any = false;
+        for (DebtPayerTotalDTO row : payerTotals) {
+            Integer payer = ordinals.get(row.getPayerId());
+            if (payer != null && row.getTotal() != null) {
+                paidSplittable[payer] += toPaise(row.getTotal());
+                any = true;
+            }
+        }
+        for (DebtSettlementTotalDTO row : settlementTotals) {
+            Integer payer = ordinals.get(row.getPayerId());
+            Integer receiver = ordinals.get(row.getSettledToId());
+            if (payer != null && receiver != null && row.getTotal() != null) {
+                long amount = toPaise(row.getTotal());
+                settlementNet[payer] += amount;
+                settlementNet[receiver] -= amount;
+                any = true;
+            }
+        }
+        return new MemberTotals(ids, paidSplittable, settlementNet, !any);
+    }
 
-            if (Boolean.TRUE.equals(expense.getIsSettlement()) && expense.getSettledTo() != null) {
-                // --- LOGIC A: SETTLEMENT (Direct Transfer) ---
-                // Payer gives money -> Payer balance INCREASES (Credit)
-                // Receiver gets money -> Receiver balance DECREASES (Debit/Debt is paid off)
-                Long receiverId = expense.getSettledTo().getId();
+    private static Map<Long, Integer> ordinals(long[] ids) {
+        Map<Long, Integer> ordinals = new HashMap<>(ids.length * 2);
+        for (int k = 0; k < ids.length; k++) {
+            ordinals.put(ids[k], k);
+        }
+        return ordinals;
+    }
 
-                netBalanceMap.put(payerId, netBalanceMap.get(payerId).add(amount));
-                netBalanceMap.put(receiverId, netBalanceMap.get(receiverId).subtract(amount));
+    /**
+     * Net balance per ordinal: what a member paid into the shared pot minus their equal share of it,
+     * plus settlements they made minus settlements they received. Sums to exactly zero.
+     */
+    public long[] netBalances(long[] paidSplittable, long[] settlementNet) {
+        int n = paidSplittable.length;
+        long total = 0;
+        for (long paid : paidSplittable) {
+            total += paid;
+        }
+        long share = Math.floorDiv(total, n);
+        long remainder = total - share * n; // 0 <= remainder < n, one extra paisa each for the first ordinals
 
-            } else {
-                // --- LOGIC B: GROUP EXPENSE (Split Bill) ---
-                // Existing logic: Payer gets credit, everyone shares the debt
-                BigDecimal splitAmount = amount.divide(new BigDecimal(groupMembers.size()), 2, RoundingMode.HALF_UP);
+        long[] balances = new long[n];
+        for (int k = 0; k < n; k++) {
+            balances[k] = paidSplittable[k] - share - (k < remainder ? 1 : 0) + settlementNet[k];
+        }
+        return balances;
+    }
 
-                // Payer gets full credit (+)
-                netBalanceMap.put(payerId, netBalanceMap.get(payerId).add(amount));
+    /**
+     * Who pays whom for the given balances. Small groups go through the exact solver (fewest transfers)
+     * when it finishes within the budget; otherwise, and for large groups, the greedy match is used.
+     * Every row carries the strategy that produced the plan and how long it took.
+     */
+    public List<DebtSettlementDTO> settle(long[] ids, String[] names, long[] netBalances) {
+        long start = System.nanoTime();
+        int[] all = new int[netBalances.length];
+        Arrays.setAll(all, k -> k);
+        List<DebtSettlementDTO> greedy = new ArrayList<>();
+        greedy(ids, names, netBalances, all, greedy);
 
-                // Everyone (including payer) gets debit (-) for their share
-                for (ProfileEntity member : groupMembers) {
-                    Long memberId = member.getId();
-                    netBalanceMap.put(memberId, netBalanceMap.get(memberId).subtract(splitAmount));
+        String strategy = STRATEGY_GREEDY;
+        List<DebtSettlementDTO> settlements = greedy;
+        int[] open = Arrays.stream(all).filter(k -> netBalances[k] != 0).toArray();
+        // Greedy is already optimal for 3 or fewer non-zero members
+        if (exactSolverEnabled && greedy.size() > 2 && open.length > 3
+                && open.length <= Math.min(exactMaxMembers, ZeroSumPartition.MAX_SIZE)) {
+            List<DebtSettlementDTO> exact = exact(ids, names, netBalances, open, start + exactBudget.toNanos());
+            if (exact == null) {
+                strategy = STRATEGY_GREEDY_TIMEOUT;
+            } else {
+                strategy = STRATEGY_EXACT;
+                if (exact.size() < greedy.size()) {
+                    settlements = exact;
                 }
             }
         }
 
-        // Step 4: Separate Debtors (-) and Creditors (+)
-        List<Long> debtors = new ArrayList<>();
-        List<Long> creditors = new ArrayList<>();
-
-        for (Map.Entry<Long, BigDecimal> entry : netBalanceMap.entrySet()) {
-            // Filter out users with ~0 balance (Floating point tolerance)
-            if (entry.getValue().abs().compareTo(new BigDecimal("0.1")) > 0) {
-                if (entry.getValue().compareTo(BigDecimal.ZERO) < 0) {
-                    debtors.add(entry.getKey());
-                } else {
-                    creditors.add(entry.getKey());
-                }
-            }
+        long solveTimeMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        for (DebtSettlementDTO settlement : settlements) {
+            settlement.setStrategy(strategy);
+            settlement.setSolveTimeMicros(solveTimeMicros);
         }
+        return settlements;
+    }
 
-        // Step 5: Greedy Matching (Recursive-like approach)
+    // Largest set of zero-sum member subsets, then a greedy match inside each one; null when out of time
+    private List<DebtSettlementDTO> exact(long[] ids, String[] names, long[] netBalances, int[] open, long deadlineNanos) {
+        long[] openBalances = new long[open.length];
+        for (int k = 0; k < open.length; k++) {
+            openBalances[k] = netBalances[open[k]];
+        }
+        List<int[]> groups = ZeroSumPartition.solve(openBalances, deadlineNanos);
+        if (groups == null) {
+            return null;
+        }
         List<DebtSettlementDTO> settlements = new ArrayList<>();
+        for (int[] group : groups) {
+            int[] members = Arrays.stream(group).map(k -> open[k]).sorted().toArray();
+            greedy(ids, names, netBalances, members, settlements);
+        }
+        return settlements;
+    }
+
+    /**
+     * Greedy matching: biggest debtor pays biggest creditor until one side is within tolerance.
+     * Ties are broken by ordinal, so the same balances always give the same plan.
+     */
+    private void greedy(long[] ids, String[] names, long[] netBalances, int[] members, List<DebtSettlementDTO> settlements) {
+        long[] balances = netBalances.clone();
+        List<Integer> debtors = new ArrayList<>();
+        List<Integer> creditors = new ArrayList<>();
+        for (int k : members) {
+            if (Math.abs(balances[k]) > TOLERANCE_PAISE) {
+                (balances[k] < 0 ? debtors : creditors).add(k);
+            }
+        }
 
         // Sort to match biggest debtor with biggest creditor (Greedy)
-        debtors.sort((id1, id2) -> netBalanceMap.get(id1).compareTo(netBalanceMap.get(id2)));
-        creditors.sort((id1, id2) -> netBalanceMap.get(id2).compareTo(netBalanceMap.get(id1)));
+        debtors.sort(Comparator.<Integer>comparingLong(k -> balances[k]).thenComparingInt(k -> k));
+        creditors.sort(Comparator.<Integer>comparingLong(k -> -balances[k]).thenComparingInt(k -> k));
 
         int i = 0;
         int j = 0;
-
         while (i < debtors.size() && j < creditors.size()) {
-            Long debtorId = debtors.get(i);
-            Long creditorId = creditors.get(j);
-
-            BigDecimal debtorBalance = netBalanceMap.get(debtorId); // Negative
-            BigDecimal creditorBalance = netBalanceMap.get(creditorId); // Positive
-
-            // Find minimum of the two (absolute values)
-            BigDecimal amountToSettle = debtorBalance.abs().min(creditorBalance);
+            int debtor = debtors.get(i);
+            int creditor = creditors.get(j);
 
+            long amountToSettle = Math.min(-balances[debtor], balances[creditor]);
             settlements.add(DebtSettlementDTO.builder()
-                    .fromUserName(nameMap.get(debtorId))
-                    .fromUserId(debtorId) // <--- SET THE DEBTOR ID HERE
-                    .toUserName(nameMap.get(creditorId))
-                    .amount(amountToSettle.setScale(2, RoundingMode.HALF_UP))
-                    .toUserId(creditorId) // Important for the Pay Button
+                    .fromUserName(names[debtor])
+                    .fromUserId(ids[debtor])
+                    .toUserName(names[creditor])
+                    .toUserId(ids[creditor]) // Important for the Pay Button
+                    .amount(fromPaise(amountToSettle))
                     .build());
 
-            // Update balances in memory
-            BigDecimal newDebtorBalance = debtorBalance.add(amountToSettle);
-            BigDecimal newCreditorBalance = creditorBalance.subtract(amountToSettle);
-
-            netBalanceMap.put(debtorId, newDebtorBalance);
-            netBalanceMap.put(creditorId, newCreditorBalance);
+            balances[debtor] += amountToSettle;
+            balances[creditor] -= amountToSettle;
 
             // Move pointers if settled (close to zero)
-            if (newDebtorBalance.abs().compareTo(new BigDecimal("0.1")) < 0) {
+            if (Math.abs(balances[debtor]) < TOLERANCE_PAISE) {
                 i++;
             }
-            if (newCreditorBalance.abs().compareTo(new BigDecimal("0.1")) < 0) {
+            if (Math.abs(balances[creditor]) < TOLERANCE_PAISE) {
                 j++;
             }
         }
+    }
 
-        return settlements;
+    public static long toPaise(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromPaise(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    // Arrays indexed by member ordinal; isEmpty means no transaction touched the group
+    public record MemberTotals(long[] ids, long[] paidSplittable, long[] settlementNet, boolean isEmpty) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.entity.EmailOutboxEntity;
+import in.shivam.rupeeroot.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains tbl_email_outbox. A poller thread claims due rows (one conditional UPDATE each, so several nodes
+ * can poll the same table) and hands them to virtual-thread workers; at most app.mail.outbox.concurrency
+ * sends run at once and the poller waits when they are all busy.
+ * A failed send is retried with exponential backoff; after max-attempts the row is parked as DEAD.
+ * Runs on its own thread rather than @Scheduled, so a long nightly job cannot hold up request mail.
+ * The same thread deletes SENT rows older than app.mail.outbox.sent-retention.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimTimeout;
+    private final Duration sentRetention;
+    private final Duration purgeInterval;
+
+    private final Semaphore permits;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-outbox-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong pendingDepth = new AtomicLong();
+    private final AtomicLong deadCount = new AtomicLong();
+    private final Timer sentTimer;
+    private final Timer failedTimer;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository,
+                              EmailService emailService,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.mail.outbox.poll-interval:1s}") Duration pollInterval,
+                              @Value("${app.mail.outbox.batch-size:100}") int batchSize,
+                              @Value("${app.mail.outbox.concurrency:8}") int concurrency,
+                              @Value("${app.mail.outbox.max-attempts:6}") int maxAttempts,
+                              @Value("${app.mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+                              @Value("${app.mail.outbox.max-backoff:1h}") Duration maxBackoff,
+                              @Value("${app.mail.outbox.claim-timeout:5m}") Duration claimTimeout,
+                              @Value("${app.mail.outbox.sent-retention:7d}") Duration sentRetention,
+                              @Value("${app.mail.outbox.purge-interval:1h}") Duration purgeInterval) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.claimTimeout = claimTimeout;
+        this.sentRetention = sentRetention;
+        this.purgeInterval = purgeInterval;
+        this.permits = new Semaphore(concurrency);
+
+        Gauge.builder("email.outbox.depth", pendingDepth, AtomicLong::get)
+                .description("Emails waiting to be sent (PENDING)")
+                .register(meterRegistry);
+        Gauge.builder("email.outbox.dead", deadCount, AtomicLong::get)
+                .description("Emails that exhausted their retries")
+                .register(meterRegistry);
+        this.sentTimer = sendTimer(meterRegistry, "sent");
+        this.failedTimer = sendTimer(meterRegistry, "failed");
+    }
+
+    private Timer sendTimer(MeterRegistry registry, String result) {
+        return Timer.builder("email.send.latency")
+                .description("SMTP send time per outbox email")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        poller.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(this::purgeSent, purgeInterval.toMillis(), purgeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        poller.shutdownNow();
+        workers.shutdown(); // in-flight sends finish; anything claimed but unsent is released after claim-timeout
+    }
+
+    void poll() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int released = outboxRepository.releaseStaleClaims(now.minus(claimTimeout));
+            if (released > 0) {
+                log.warn("Email outbox: released {} stale claims", released);
+            }
+            List<Long> due;
+            do {
+                due = outboxRepository.findDueIds(now, Limit.of(batchSize));
+                for (Long id : due) {
+                    permits.acquire();
+                    // The claim time doubles as the claim's identity; millis compare equal at any column precision
+                    LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+                    if (outboxRepository.claim(id, claimedAt) == 0) {
+                        permits.release(); // taken by another node
+                        continue;
+                    }
+                    workers.execute(() -> {
+                        try {
+                            send(id, claimedAt);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            } while (due.size() == batchSize);
+            pendingDepth.set(outboxRepository.countByStatus(EmailOutboxEntity.PENDING));
+            deadCount.set(outboxRepository.countByStatus(EmailOutboxEntity.DEAD));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Keep polling; the DB may be back on the next tick
+            log.warn("Email outbox poll failed: {}", e.getMessage());
+        }
+    }
+
+    void purgeSent() {
+        try {
+            int deleted = outboxRepository.deleteSentBefore(LocalDateTime.now().minus(sentRetention));
+            if (deleted > 0) {
+                log.info("Email outbox: purged {} sent emails older than {}", deleted, sentRetention);
+            }
+        } catch (Exception e) {
+            log.warn("Email outbox purge failed: {}", e.getMessage());
+        }
+    }
+
+    private void send(Long id, LocalDateTime claimedAt) {
+        EmailOutboxEntity email = outboxRepository.findById(id).orElse(null);
+        if (email == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            emailService.deliver(email.getRecipient(), email.getSubject(), email.getBody());
+            sentTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (outboxRepository.markSent(id, claimedAt, LocalDateTime.now()) == 0) {
+                log.warn("Email {} was sent after its claim went stale; it may be sent again", id);
+            }
+        } catch (Exception e) {
+            failedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            int attempts = email.getAttempts() + 1;
+            boolean dead = attempts >= maxAttempts;
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(attempts));
+            if (outboxRepository.markFailed(id, claimedAt, dead ? EmailOutboxEntity.DEAD : EmailOutboxEntity.PENDING,
+                    nextAttemptAt, truncate(e.getMessage())) == 0) {
+                // Released after claim-timeout; whoever holds it now decides
+                log.warn("Email {} failed after its claim went stale: {}", id, e.getMessage());
+            } else if (dead) {
+                log.error("Email {} to {} is DEAD after {} attempts: {}", id, email.getRecipient(), attempts, e.getMessage());
+            } else {
+                log.warn("Email {} to {} failed (attempt {}), retrying at {}: {}", id, email.getRecipient(), attempts, nextAttemptAt, e.getMessage());
+            }
+        }
+    }
+
+    // initial, 2x, 4x, ... capped at max-backoff
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
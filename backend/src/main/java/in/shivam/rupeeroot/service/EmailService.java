@@ -1,25 +1,82 @@
 package in.shivam.rupeeroot.service;
 
+import in.shivam.rupeeroot.entity.EmailOutboxEntity;
+import in.shivam.rupeeroot.repository.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final EmailOutboxRepository outboxRepository;
 
     @Value("${spring.mail.properties.mail.smtp.from}")
     private String fromEmail;
 
+    @Value("${app.mail.bulk.connections:4}")
+    private int bulkConnections;
+
+    @Value("${app.mail.bulk.messages-per-connection:100}")
+    private int messagesPerConnection;
+
+    // One thread per SMTP connection used for bulk sends
+    private ExecutorService bulkSenders;
+
+    @PostConstruct
+    void startBulkSenders() {
+        AtomicInteger threadCount = new AtomicInteger();
+        bulkSenders = Executors.newFixedThreadPool(bulkConnections, runnable -> {
+            Thread thread = new Thread(runnable, "smtp-bulk-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopBulkSenders() {
+        bulkSenders.shutdown();
+    }
+
+    // Queues the mail in the caller's transaction (or a new one); EmailOutboxService sends it after commit
+    @Transactional
     public void sendEmail(String to, String subject, String body) {
+        outboxRepository.save(EmailOutboxEntity.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .status(EmailOutboxEntity.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+    }
+
+    // Synchronous SMTP send - only for the outbox workers
+    public void deliver(String to, String subject, String body) {
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(fromEmail);
@@ -32,6 +89,77 @@ public class EmailService {
         }
     }
 
+    // --- BULK SEND (scheduled jobs) ---
+
+    public record BulkSendResult(int sent, List<SimpleMailMessage> failed) {
+    }
+
+    public SimpleMailMessage bulkMessage(String to, String subject, String body) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(body);
+        return message;
+    }
+
+    /**
+     * Sends straight over SMTP, skipping the outbox. Messages are cut into chunks of messages-per-connection;
+     * each chunk goes out on one connection (one connect/STARTTLS/AUTH, then a MAIL FROM..DATA per message),
+     * and at most app.mail.bulk.connections chunks are in flight at once, shared by every caller.
+     * A rejected message or a broken connection only fails that chunk's affected messages; they are
+     * returned so the caller can hand them to the outbox for retry. Blocks until every chunk is done.
+     */
+    public BulkSendResult sendBulk(List<SimpleMailMessage> messages) {
+        List<Future<List<SimpleMailMessage>>> chunks = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += messagesPerConnection) {
+            List<SimpleMailMessage> chunk = messages.subList(from, Math.min(from + messagesPerConnection, messages.size()));
+            chunks.add(bulkSenders.submit(() -> sendOnOneConnection(chunk)));
+        }
+        List<SimpleMailMessage> failed = new ArrayList<>();
+        for (Future<List<SimpleMailMessage>> chunk : chunks) {
+            try {
+                failed.addAll(chunk.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while sending bulk email");
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause().getMessage());
+            }
+        }
+        return new BulkSendResult(messages.size() - failed.size(), failed);
+    }
+
+    // JavaMailSender sends a varargs batch over a single transport, reconnecting only if it drops
+    private List<SimpleMailMessage> sendOnOneConnection(List<SimpleMailMessage> chunk) {
+        try {
+            mailSender.send(chunk.toArray(new SimpleMailMessage[0]));
+            return List.of();
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                // Every message went out and only transport.close() failed - resending would deliver them twice
+                log.warn("Bulk email: {} messages sent, closing the connection failed: {}", chunk.size(),
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                return List.of();
+            }
+            List<SimpleMailMessage> failed = new ArrayList<>();
+            for (Object message : e.getFailedMessages().keySet()) {
+                if (message instanceof SimpleMailMessage simpleMessage) {
+                    failed.add(simpleMessage);
+                }
+            }
+            // The exception's own message lists every failed message; the first cause is enough
+            Exception[] causes = e.getMessageExceptions();
+            log.warn("Bulk email: {} of {} messages failed on one connection: {}", failed.size(), chunk.size(),
+                    causes.length > 0 ? causes[0].getMessage() : e.getMessage());
+            return failed;
+        } catch (MailException e) {
+            // Authentication or message preparation failed before anything was sent
+            log.warn("Bulk email: connection failed, {} messages not sent: {}", chunk.size(), e.getMessage());
+            return chunk;
+        }
+    }
+
     public void sendEmailWithAttachment(String to, String subject, String body, byte[] attachment, String filename) throws MessagingException {
         MimeMessage message = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true);
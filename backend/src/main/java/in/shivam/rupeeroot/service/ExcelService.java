@@ -2,65 +2,82 @@ package in.shivam.rupeeroot.service;
 
 import in.shivam.rupeeroot.dto.ExpenseDTO;
 import in.shivam.rupeeroot.dto.IncomeDTO;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
+/**
+ * Writes exports with a streaming SXSSFWorkbook: only the last ROW_WINDOW rows stay in memory,
+ * older ones are flushed to a compressed temp file, so heap use does not grow with the row count.
+ * Callers pass a Stream (usually straight from a DB cursor) and close it themselves.
+ */
 @Service
 public class ExcelService {
 
-    public void writeIncomesToExcel(OutputStream os, List<IncomeDTO> incomes) throws IOException {
-        try(Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Incomes");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("S.No");
-            header.createCell(1).setCellValue("Name");
-            header.createCell(2).setCellValue("Category");
-            header.createCell(3).setCellValue("Amount");
-            header.createCell(4).setCellValue("Date");
-            IntStream.range(0, incomes.size())
-                    .forEach(i -> {
-                        IncomeDTO income = incomes.get(i);
-                        Row row = sheet.createRow(i + 1);
-                        row.createCell(0).setCellValue(i + 1);
-                        row.createCell(1).setCellValue(income.getName() != null ? income.getName(): "N/A");
-                        row.createCell(2).setCellValue(income.getCategoryId() != null ? income.getCategoryName(): "N/A");
-                        row.createCell(3).setCellValue(income.getAmount() != null ? income.getAmount().doubleValue(): 0);
-                        row.createCell(4).setCellValue(income.getDate() != null ? income.getDate().toString(): "N/A");
-                    });
+    private static final int ROW_WINDOW = 100;
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final String[] HEADER = {"S.No", "Name", "Category", "Amount", "Date"};
+
+    public void writeIncomesToExcel(OutputStream os, Stream<IncomeDTO> incomes) throws IOException {
+        write(os, "Incomes", incomes, (row, income) -> {
+            row.createCell(1).setCellValue(income.getName() != null ? income.getName(): "N/A");
+            row.createCell(2).setCellValue(income.getCategoryId() != null ? income.getCategoryName(): "N/A");
+            row.createCell(3).setCellValue(income.getAmount() != null ? income.getAmount().doubleValue(): 0);
+            row.createCell(4).setCellValue(income.getDate() != null ? income.getDate().toString(): "N/A");
+        });
+    }
+
+    public void writeExpensesToExcel(OutputStream os, Stream<ExpenseDTO> expenses) throws IOException {
+        write(os, "Expenses", expenses, (row, expense) -> {
+            row.createCell(1).setCellValue(expense.getName() != null ? expense.getName() : "");
+            row.createCell(2)
+                    .setCellValue(expense.getCategoryId() != null ? expense.getCategoryName() : "N/A");
+            row.createCell(3)
+                    .setCellValue(expense.getAmount() != null ? expense.getAmount().doubleValue() : 0);
+            row.createCell(4).setCellValue(expense.getDate() != null ? expense.getDate().toString() : "");
+        });
+    }
+
+    private <T> void write(OutputStream os, String sheetName, Stream<T> rows, BiConsumer<Row, T> cells) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            int sheetCount = 1;
+            Sheet sheet = createSheet(workbook, sheetName);
+            int rowIndex = 1;
+            long serial = 1;
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                // A sheet holds ~1M rows; carry on in a new one instead of failing
+                if (rowIndex == MAX_ROWS_PER_SHEET) {
+                    sheet = createSheet(workbook, sheetName + " (" + (++sheetCount) + ")");
+                    rowIndex = 1;
+                }
+                Row row = sheet.createRow(rowIndex++);
+                row.createCell(0).setCellValue(serial++); // Serial number
+                cells.accept(row, iterator.next());
+            }
             workbook.write(os);
+        } finally {
+            workbook.close();
+            workbook.dispose(); // deletes the temp files
         }
     }
 
-    public void writeExpensesToExcel(OutputStream os, List<ExpenseDTO> expenses) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Expenses");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("S.No");
-            header.createCell(1).setCellValue("Name");
-            header.createCell(2).setCellValue("Category");
-            header.createCell(3).setCellValue("Amount");
-            header.createCell(4).setCellValue("Date");
-            IntStream.range(0, expenses.size())
-                    .forEach(i -> {
-                        ExpenseDTO expense = expenses.get(i);
-                        Row row = sheet.createRow(i + 1);
-                        row.createCell(0).setCellValue(i + 1); // Serial number
-                        row.createCell(1).setCellValue(expense.getName() != null ? expense.getName() : "");
-                        row.createCell(2)
-                                .setCellValue(expense.getCategoryId() != null ? expense.getCategoryName() : "N/A");
-                        row.createCell(3)
-                                .setCellValue(expense.getAmount() != null ? expense.getAmount().doubleValue() : 0);
-                        row.createCell(4).setCellValue(expense.getDate() != null ? expense.getDate().toString() : "");
-                    });
-            workbook.write(os);
+    private Sheet createSheet(SXSSFWorkbook workbook, String name) {
+        Sheet sheet = workbook.createSheet(name);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADER.length; i++) {
+            header.createCell(i).setCellValue(HEADER[i]);
         }
+        return sheet;
     }
 }
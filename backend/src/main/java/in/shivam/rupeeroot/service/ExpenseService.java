@@ -1,22 +1,35 @@
 package in.shivam.rupeeroot.service;
 
+import in.shivam.rupeeroot.dto.CursorPageDTO;
+import in.shivam.rupeeroot.dto.DailyExpenseRowDTO;
 import in.shivam.rupeeroot.dto.ExpenseDTO;
+import in.shivam.rupeeroot.dto.GroupEventDTO;
+import in.shivam.rupeeroot.entity.BudgetAlertEntity;
 import in.shivam.rupeeroot.entity.CategoryEntity;
 import in.shivam.rupeeroot.entity.ExpenseEntity;
 import in.shivam.rupeeroot.entity.ProfileEntity;
+import in.shivam.rupeeroot.repository.BudgetAlertRepository;
 import in.shivam.rupeeroot.repository.CategoryRepository;
 import in.shivam.rupeeroot.repository.ExpenseRepository;
 import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.repository.SqlDialect;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,77 +40,102 @@ public class ExpenseService {
     private final ProfileService profileService;
     private final ProfileRepository profileRepository;
     private final EmailService emailService;
-    private final CacheManager cacheManager;
-
-    private List<Long> getFamilyProfileIds(ProfileEntity currentProfile) {
-        if (currentProfile.getGroupId() == null || currentProfile.getGroupId().isEmpty()) {
-            return List.of(currentProfile.getId());
-        } else {
-            List<ProfileEntity> familyMembers = profileRepository.findByGroupId(currentProfile.getGroupId());
-            return familyMembers.stream()
-                    .map(ProfileEntity::getId)
-                    .collect(Collectors.toList());
-        }
-    }
-
-    private void clearDashboardCacheForGroup(ProfileEntity currentProfile) {
-        List<Long> familyIds = getFamilyProfileIds(currentProfile);
-        Cache dashboardCache = cacheManager.getCache("dashboard");
-        if (dashboardCache != null) {
-            for (Long id : familyIds) {
-                dashboardCache.evict(id);
-            }
-        }
-    }
-
+    private final GroupVersionService groupVersionService;
+    private final GroupEventService groupEventService;
+    private final MonthlyTotalService monthlyTotalService;
+    private final GroupMembershipService groupMembershipService;
+    private final TransactionSearchService transactionSearchService;
+    private final ExcelService excelService;
+    private final GroupBalanceService groupBalanceService;
+    private final BudgetAlertRepository budgetAlertRepository;
+    private final SqlDialect sqlDialect;
+
+    // Percent of the monthly budget at which an alert email goes out, once each per month
+    @Value("${app.budget.alert-thresholds:80,100}")
+    private List<Integer> budgetAlertThresholds;
+
+
+    @Transactional
     public ExpenseDTO addExpense(ExpenseDTO dto) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         CategoryEntity category = categoryRepository.findById(dto.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
 
-        ExpenseEntity entity = toEntity(dto, profile, category);
+        // Reference only - the insert needs the id, not the row
+        ExpenseEntity entity = toEntity(dto, profileRepository.getReferenceById(profile.getId()), category);
         ExpenseEntity saved = expenseRepository.save(entity);
+        monthlyTotalService.recordExpense(saved);
+        groupBalanceService.recordExpense(profile.getGroupId(), saved);
 
         // Check and notify for personal budget
-        checkAndNotifyPersonalBudget(profile);
+        checkAndNotifyPersonalBudget(profile, saved);
 
-        clearDashboardCacheForGroup(profile);
+        transactionSearchService.onAdded(groupVersionService.scopeOf(profile), TransactionSearchService.EXPENSE, saved.getId(), saved.getName());
 
-        return toDTO(saved);
+        // Bumps the group's generation (dashboard cache) and notifies members, after commit
+        ExpenseDTO result = toDTO(saved, profile.getFullName());
+        groupEventService.expenseChanged(profile, GroupEventDTO.Type.EXPENSE_ADDED, result);
+        return result;
     }
 
-    private void checkAndNotifyPersonalBudget(ProfileEntity profile) {
-        if (profile.getBudgetLimit() == null || profile.getBudgetLimit().compareTo(BigDecimal.ZERO) <= 0) {
+    /**
+     * Reads the month's spend from the ledger row recordExpense just updated, so no expense rows are loaded.
+     * That UPDATE also locks the row until commit, which serializes concurrent adds for the profile and
+     * makes the check-then-insert on tbl_budget_alerts safe. Each threshold alerts once per month; when one
+     * expense crosses several, only the highest is emailed.
+     */
+    private void checkAndNotifyPersonalBudget(ProfilePrincipal profile, ExpenseEntity expense) {
+        BigDecimal limit = profile.getBudgetLimit();
+        if (limit == null || limit.compareTo(BigDecimal.ZERO) <= 0) {
             return;
         }
+        // Same month rule as the ledger (no date counts as today)
+        LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
+        if (expense.getDate() != null && !expense.getDate().withDayOfMonth(1).equals(monthStart)) {
+            return; // Back-dated (or future) expenses don't count against this month's budget
+        }
 
-        LocalDate now = LocalDate.now();
-        LocalDate start = now.withDayOfMonth(1);
-        LocalDate end = now.withDayOfMonth(now.lengthOfMonth());
-
-        List<ExpenseEntity> personalExpenses = expenseRepository.findByProfileIdInAndDateBetween(
-                List.of(profile.getId()), start, end
-        );
-
-        BigDecimal totalPersonalExpense = personalExpenses.stream()
-                .map(ExpenseEntity::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        if (totalPersonalExpense.compareTo(profile.getBudgetLimit()) > 0) {
-            String subject = "Budget Alert: Limit Exceeded";
-            String body = "Hello " + profile.getFullName() + ",\n\n" +
-                    "You have exceeded your monthly personal budget limit.\n\n" +
-                    "Budget Limit: " + profile.getBudgetLimit() + "\n" +
-                    "Current Month Expenses: " + totalPersonalExpense + "\n\n" +
-                    "Please manage your expenses accordingly.\n\n" +
-                    "Best,\nRupeeRoot Team";
-
-            emailService.sendEmail(profile.getEmail(), subject, body);
+        BigDecimal spent = monthlyTotalService.getMonthExpense(profile.getId(), monthStart);
+        List<Integer> reached = budgetAlertThresholds.stream()
+                .filter(percent -> spent.multiply(BigDecimal.valueOf(100)).compareTo(limit.multiply(BigDecimal.valueOf(percent))) >= 0)
+                .toList();
+        if (reached.isEmpty()) {
+            return;
+        }
+        List<Integer> alreadyAlerted = budgetAlertRepository.findThresholdPercents(profile.getId(), monthStart);
+        List<Integer> crossed = reached.stream().filter(percent -> !alreadyAlerted.contains(percent)).toList();
+        if (crossed.isEmpty()) {
+            return;
         }
+        for (Integer percent : crossed) {
+            budgetAlertRepository.save(BudgetAlertEntity.builder()
+                    .profileId(profile.getId())
+                    .monthStart(monthStart)
+                    .thresholdPercent(percent)
+                    .spent(spent)
+                    .budgetLimit(limit)
+                    .build());
+        }
+
+        int percent = crossed.stream().max(Integer::compare).get();
+        String subject = percent >= 100
+                ? "Budget Alert: Limit Exceeded"
+                : "Budget Alert: " + percent + "% of your monthly budget used";
+        String body = "Hello " + profile.getFullName() + ",\n\n" +
+                (percent >= 100
+                        ? "You have exceeded your monthly personal budget limit.\n\n"
+                        : "You have used " + percent + "% of your monthly personal budget limit.\n\n") +
+                "Budget Limit: " + limit + "\n" +
+                "Current Month Expenses: " + spent + "\n\n" +
+                "Please manage your expenses accordingly.\n\n" +
+                "Best,\nRupeeRoot Team";
+
+        emailService.sendEmail(profile.getEmail(), subject, body);
     }
     // --- NEW METHOD: Settle Debt ---
+    @Transactional
     public ExpenseDTO settleDebt(ExpenseDTO dto) {
-        ProfileEntity payer = profileService.getCurrentProfile();
+        ProfilePrincipal payer = profileService.getCurrentPrincipal();
 
         // Find the receiver (The person getting paid)
         ProfileEntity receiver = profileRepository.findById(dto.getSettledToId())
@@ -115,7 +153,7 @@ public class ExpenseService {
                 .name("Settlement: " + payer.getFullName() + " -> " + receiver.getFullName())
                 .amount(dto.getAmount())
                 .date(LocalDate.now())
-                .profile(payer)          // Who paid
+                .profile(profileRepository.getReferenceById(payer.getId())) // Who paid
                 .settledTo(receiver)     // Who received
                 .category(category)      // Required field
                 .isSettlement(true)      // FLAG: It's a settlement
@@ -124,35 +162,39 @@ public class ExpenseService {
                 .build();
 
         ExpenseEntity saved = expenseRepository.save(settlement);
-        return toDTO(saved);
-    }
-    public List<ExpenseDTO> getCurrentMonthExpensesForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
-        List<Long> familyIds = getFamilyProfileIds(profile);
-        LocalDate now = LocalDate.now();
-        LocalDate startDate = now.withDayOfMonth(1);
-        LocalDate endDate = now.withDayOfMonth(now.lengthOfMonth());
+        monthlyTotalService.recordExpense(saved);
+        groupBalanceService.recordExpense(payer.getGroupId(), saved);
 
-        List<ExpenseEntity> list = expenseRepository.findByProfileIdInAndDateBetween(familyIds, startDate, endDate);
-        return list.stream().map(this::toDTO).toList();
+        ExpenseDTO result = toDTO(saved, payer.getFullName());
+        groupEventService.expenseChanged(payer, GroupEventDTO.Type.DEBT_SETTLED, result);
+        return result;
+    }
+    // Streams the range from a DB cursor straight into the workbook; nothing is collected in memory
+    @Transactional(readOnly = true)
+    public void exportExpenses(LocalDate startDate, LocalDate endDate, OutputStream os) throws IOException {
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+        try (Stream<ExpenseDTO> rows = expenseRepository.streamRowsByProfileIdInAndDateBetween(familyIds, startDate, endDate)) {
+            excelService.writeExpensesToExcel(os, rows);
+        }
     }
 
     public BigDecimal getTotalExpenseForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
-        List<Long> familyIds = getFamilyProfileIds(profile);
-        BigDecimal total = expenseRepository.findTotalExpenseByProfileIds(familyIds);
-        return total != null ? total : BigDecimal.ZERO;
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+        // Served from the running ledger instead of SUM over every expense row
+        return monthlyTotalService.getTotalExpense(familyIds);
     }
 
     public List<ExpenseDTO> getLatest5ExpensesForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
-        List<Long> familyIds = getFamilyProfileIds(profile);
-        List<ExpenseEntity> list = expenseRepository.findTop5ByProfileIdInOrderByDateDesc(familyIds);
-        return list.stream().map(this::toDTO).toList();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+        return expenseRepository.findLatestRowsByProfileIdIn(familyIds, Limit.of(5));
     }
 
+    @Transactional
     public void deleteExpense(Long id) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         ExpenseEntity entity = expenseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Expense not found"));
 
@@ -160,26 +202,55 @@ public class ExpenseService {
             throw new RuntimeException("Unauthorized to delete this expense");
         }
         expenseRepository.delete(entity);
+        monthlyTotalService.reverseExpense(entity);
+        groupBalanceService.reverseExpense(profile.getGroupId(), entity);
 
-        clearDashboardCacheForGroup(profile);
+        transactionSearchService.onRemoved(groupVersionService.scopeOf(profile), TransactionSearchService.EXPENSE, entity.getId());
+        groupEventService.expenseChanged(profile, GroupEventDTO.Type.EXPENSE_DELETED, toDTO(entity, profile.getFullName()));
     }
 
-    public List<ExpenseDTO> getExpensesForUser(Long profileId, LocalDate startDate, LocalDate endDate, String keyword, Sort sort) {
-        List<Long> familyIds;
-        if (profileId == null) {
-            ProfileEntity profile = profileService.getCurrentProfile();
-            familyIds = getFamilyProfileIds(profile);
-        } else {
-            familyIds = List.of(profileId);
+    // One keyset page of the user's (or family's) expenses; nextCursor is null on the last page
+    public CursorPageDTO<ExpenseDTO> getExpensePage(LocalDate startDate, LocalDate endDate, String keyword,
+                                                TransactionSortField sortField, Sort.Direction direction,
+                                                KeysetCursor after, int limit) {
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+
+        // Keyword goes through the trigram index when it is warm; null means fall back to LIKE in SQL
+        long[] candidates = transactionSearchService.findCandidates(
+                groupVersionService.scopeOf(profile), TransactionSearchService.EXPENSE, familyIds, keyword);
+        if (candidates != null && candidates.length == 0) {
+            return CursorPageDTO.<ExpenseDTO>builder().items(List.of()).build();
+        }
+        List<Long> candidateIds = candidates != null ? Arrays.stream(candidates).boxed().toList() : null;
+
+        // One extra row tells us whether another page exists
+        List<ExpenseDTO> rows = expenseRepository.findPage(familyIds, startDate, endDate,
+                candidateIds == null ? keyword : null, candidateIds, sortField, direction, after, sqlDialect.sortsNullsLow(), limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<ExpenseDTO> page = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ExpenseDTO last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.at(sortField, direction, last.getId(), last.getDate(), last.getAmount(), last.getName()).encode();
         }
+        return CursorPageDTO.<ExpenseDTO>builder()
+                .items(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
 
-        List<ExpenseEntity> list = expenseRepository.findByProfileIdInAndDateBetweenAndNameContainingIgnoreCase(familyIds, startDate, endDate, keyword, sort);
-        return list.stream().map(this::toDTO).toList();
+    // Current month, newest first
+    public CursorPageDTO<ExpenseDTO> getCurrentMonthExpensePage(KeysetCursor after, int limit) {
+        LocalDate now = LocalDate.now();
+        return getExpensePage(now.withDayOfMonth(1), now.withDayOfMonth(now.lengthOfMonth()), null,
+                TransactionSortField.DATE, Sort.Direction.DESC, after, limit);
     }
 
-    public List<ExpenseDTO> getExpensesForUserOnDate(Long profileId, LocalDate date) {
-        List<ExpenseEntity> list = expenseRepository.findByProfileIdAndDate(profileId, date);
-        return list.stream().map(this::toDTO).toList();
+    // Daily summary: the day's expenses of a whole batch of profiles, ordered by profile
+    public List<DailyExpenseRowDTO> getExpensesForUsersOnDate(List<Long> profileIds, LocalDate date) {
+        return expenseRepository.findDailyRowsByProfileIdIn(profileIds, date);
     }
 
     private ExpenseEntity toEntity(ExpenseDTO dto, ProfileEntity profile, CategoryEntity category) {
@@ -196,7 +267,9 @@ public class ExpenseService {
                 .build();
     }
 
-    private ExpenseDTO toDTO(ExpenseEntity entity) {
+    // Only for freshly saved rows; lists come from the projection queries in the repository.
+    // creatorName is passed in because the caller already knows it (avoids loading the profile proxy)
+    private ExpenseDTO toDTO(ExpenseEntity entity, String creatorName) {
         return ExpenseDTO.builder()
                 .id(entity.getId())
                 .name(entity.getName())
@@ -207,7 +280,7 @@ public class ExpenseService {
                 .date(entity.getDate())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
-                .creatorName(entity.getProfile().getFullName())
+                .creatorName(creatorName)
                 .isSplittable(entity.getIsSplittable())
                 .isSettlement(entity.getIsSettlement())
                 .build();
@@ -0,0 +1,307 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.dto.DebtSettlementDTO;
+import in.shivam.rupeeroot.dto.GroupBalanceDriftDTO;
+import in.shivam.rupeeroot.entity.ExpenseEntity;
+import in.shivam.rupeeroot.entity.GroupBalanceEntity;
+import in.shivam.rupeeroot.entity.ProfileEntity;
+import in.shivam.rupeeroot.repository.ExpenseRepository;
+import in.shivam.rupeeroot.repository.GroupBalanceRepository;
+import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.repository.SqlDialect;
+import in.shivam.rupeeroot.service.DebtSimplificationService.MemberTotals;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static in.shivam.rupeeroot.service.DebtSimplificationService.fromPaise;
+import static in.shivam.rupeeroot.service.DebtSimplificationService.toPaise;
+
+/**
+ * Maintains tbl_group_balances, the running inputs behind group debts.
+ * Writers call record/reverse inside their own transaction, so the balances and the
+ * expense rows always commit (or roll back) together; getGroupDebts only runs the matching step.
+ *
+ * Membership policy: rows hold raw totals, not net balances - each member's equal share is derived
+ * from the current member count at read time, so nothing has to be rebalanced when the count changes.
+ * What does change on a join is which history counts (the joiner's past expenses, settlements
+ * between the joiner and existing members), so create/join rebuild the group's rows from full history
+ * in the same transaction. Removing a member would do the same.
+ *
+ * Plans are cached per group generation; every change above bumps the generation after commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GroupBalanceService {
+
+    private final GroupBalanceRepository groupBalanceRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ProfileRepository profileRepository;
+    private final GroupMembershipService groupMembershipService;
+    private final DebtSimplificationService debtService;
+    private final GroupVersionService groupVersionService;
+    private final SqlDialect sqlDialect;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // --- WRITE SIDE (called from ExpenseService) ---
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordExpense(String groupId, ExpenseEntity expense) {
+        apply(groupId, expense, expense.getAmount());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reverseExpense(String groupId, ExpenseEntity expense) {
+        apply(groupId, expense, expense.getAmount() != null ? expense.getAmount().negate() : null);
+    }
+
+    // Same classification as DebtSimplificationService.replay, so the table always equals a replay
+    private void apply(String groupId, ExpenseEntity expense, BigDecimal delta) {
+        if (groupId == null || groupId.isEmpty() || delta == null || delta.signum() == 0) {
+            return; // Solo users have no group debts
+        }
+        Long payerId = expense.getProfile().getId();
+        boolean isSettlement = Boolean.TRUE.equals(expense.getIsSettlement());
+        if (isSettlement && expense.getSettledTo() != null) {
+            Long receiverId = expense.getSettledTo().getId();
+            // Settlements with someone outside the group don't move group balances
+            if (!isMember(groupId, receiverId)) {
+                return;
+            }
+            add(groupId, payerId, BigDecimal.ZERO, delta);
+            add(groupId, receiverId, BigDecimal.ZERO, delta.negate());
+        } else if (isSettlement || Boolean.TRUE.equals(expense.getIsSplittable())) {
+            add(groupId, payerId, delta, BigDecimal.ZERO);
+        } else {
+            return;
+        }
+        groupVersionService.bumpAfterCommit(planScope(groupId));
+    }
+
+    private boolean isMember(String groupId, Long profileId) {
+        return Arrays.stream(groupMembershipService.getMemberIds(groupId)).anyMatch(id -> id == profileId);
+    }
+
+    // One atomic statement that also creates the row (group created before the table existed, or a new member)
+    private void add(String groupId, Long profileId, BigDecimal paidDelta, BigDecimal settlementDelta) {
+        if (sqlDialect.isPostgres()) {
+            groupBalanceRepository.upsertBalancePostgres(groupId, profileId, paidDelta, settlementDelta);
+        } else {
+            groupBalanceRepository.upsertBalanceMySql(groupId, profileId, paidDelta, settlementDelta);
+        }
+    }
+
+    // Membership changed: recompute the group's rows from the history of its current members
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void rebuildGroup(String groupId) {
+        addZeroRows(groupId, profileRepository.findIdsByGroupId(groupId));
+        List<GroupBalanceDriftDTO> drift = compareGroup(groupId, true);
+        if (drift == null) {
+            throw new RuntimeException("Group membership changed while its balances were rebuilt, please try again");
+        }
+        // Member count changed even if no row did
+        groupVersionService.bumpAfterCommit(planScope(groupId));
+        log.info("Group balances rebuilt for group {}, {} rows changed", groupId, drift.size());
+    }
+
+    // --- READ SIDE (GroupService.getGroupDebts) ---
+
+    // Plan cache key: the group plus its balance generation, e.g. "AB12CD34:v7"
+    public String planCacheKey(String groupId) {
+        return groupId + ":v" + groupVersionService.currentVersion(planScope(groupId));
+    }
+
+    /**
+     * Who pays whom, from the stored totals; O(members), no expense rows read.
+     * Cached per generation; sync makes concurrent misses on a node wait for one computation.
+     */
+    @Cacheable(value = "groupDebts", key = "#cacheKey", sync = true)
+    public List<DebtSettlementDTO> getSettlementPlan(String cacheKey, String groupId) {
+        return Timer.builder("group.debts.plan.compute")
+                .description("Settlement plan recomputations (cache misses)")
+                .register(meterRegistry)
+                .record(() -> computePlan(groupId));
+    }
+
+    private List<DebtSettlementDTO> computePlan(String groupId) {
+        List<ProfileEntity> groupMembers = profileRepository.findByGroupId(groupId);
+        if (groupMembers.size() <= 1) {
+            return List.of();
+        }
+        List<ProfileEntity> members = new ArrayList<>(groupMembers);
+        members.sort(Comparator.comparing(ProfileEntity::getId));
+        int n = members.size();
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        Map<Long, Integer> ordinals = new HashMap<>(n * 2);
+        for (int k = 0; k < n; k++) {
+            ids[k] = members.get(k).getId();
+            names[k] = members.get(k).getFullName();
+            ordinals.put(ids[k], k);
+        }
+
+        long[] paidSplittable = new long[n];
+        long[] settlementNet = new long[n];
+        for (GroupBalanceEntity row : groupBalanceRepository.findByGroupId(groupId)) {
+            Integer k = ordinals.get(row.getProfileId());
+            if (k != null) {
+                paidSplittable[k] = toPaise(row.getPaidSplittable());
+                settlementNet[k] = toPaise(row.getSettlementNet());
+            }
+        }
+        return debtService.settle(ids, names, debtService.netBalances(paidSplittable, settlementNet));
+    }
+
+    // Separate generation from the dashboard's: incomes and non-splittable expenses don't touch debts
+    private String planScope(String groupId) {
+        return "debts:" + groupId;
+    }
+
+    // --- REBUILD / VERIFY JOB ---
+
+    // A repair attempt is retried when someone joins between reading the members and locking their rows
+    private static final int REPAIR_ATTEMPTS = 3;
+
+    // Nightly replay of every group's full history against the table, repairing any drift it finds
+    @Scheduled(cron = "${app.group-balances.reconcile-cron:0 45 3 * * *}", zone = "IST")
+    public void scheduledReconcile() {
+        log.info("Job started: group balances reconcile");
+        List<GroupBalanceDriftDTO> drift = reconcile(true);
+        log.info("Job completed: group balances reconcile, {} drifted rows repaired", drift.size());
+    }
+
+    // First start after the table is introduced: seed it from existing expenses
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (groupBalanceRepository.count() == 0 && !profileRepository.findAllGroupIds().isEmpty()) {
+            log.info("Group balances table is empty, rebuilding from expenses");
+            reconcile(true);
+        }
+    }
+
+    /**
+     * Replays every group's full history and compares it with the stored rows.
+     * A repair runs each group in its own transaction, so a group's writers only wait while that
+     * group is replayed, and adds the difference to the rows rather than overwriting them.
+     * Returns every row that did not match.
+     */
+    public List<GroupBalanceDriftDTO> reconcile(boolean repair) {
+        List<GroupBalanceDriftDTO> drift = new ArrayList<>();
+        for (String groupId : profileRepository.findAllGroupIds()) {
+            drift.addAll(repair ? repairGroup(groupId) : compareGroup(groupId, false));
+        }
+        for (GroupBalanceDriftDTO d : drift) {
+            log.warn("Group balance drift: group={} profile={} paid ledger={} source={} settlement ledger={} source={}",
+                    d.getGroupId(), d.getProfileId(), d.getLedgerPaidSplittable(), d.getSourcePaidSplittable(),
+                    d.getLedgerSettlementNet(), d.getSourceSettlementNet());
+        }
+        return drift;
+    }
+
+    // Members are read before the transaction: under MySQL REPEATABLE READ the first plain read fixes the
+    // snapshot, and the sums have to see everything committed before the lock
+    private List<GroupBalanceDriftDTO> repairGroup(String groupId) {
+        for (int attempt = 1; attempt <= REPAIR_ATTEMPTS; attempt++) {
+            List<Long> memberIds = profileRepository.findIdsByGroupId(groupId);
+            List<GroupBalanceDriftDTO> drift = transactionTemplate.execute(status -> {
+                addZeroRows(groupId, memberIds);
+                List<GroupBalanceDriftDTO> groupDrift = compareGroup(groupId, true);
+                if (groupDrift == null) {
+                    status.setRollbackOnly();
+                }
+                return groupDrift;
+            });
+            if (drift != null) {
+                return drift;
+            }
+        }
+        log.warn("Group balance repair skipped for group {}: membership kept changing while it ran", groupId);
+        return List.of();
+    }
+
+    // Every member gets a row before the lock, so a first write for a member can't slip in unlocked
+    private void addZeroRows(String groupId, List<Long> memberIds) {
+        for (Long memberId : memberIds) {
+            add(groupId, memberId, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Repair: locks the group's rows, then sums the members' history, so a writer committing meanwhile is
+     * either in both or waits for us. Returns null when a current member has no locked row (joined after
+     * addZeroRows); the caller rolls back and tries again.
+     */
+    private List<GroupBalanceDriftDTO> compareGroup(String groupId, boolean repair) {
+        List<GroupBalanceEntity> rows = repair
+                ? groupBalanceRepository.findByGroupIdForUpdate(groupId)
+                : groupBalanceRepository.findByGroupId(groupId);
+
+        // Straight from the DB: inside a join the membership cache has not been invalidated yet
+        long[] ids = profileRepository.findIdsByGroupId(groupId).stream().mapToLong(Long::longValue).toArray();
+        List<Long> memberIds = Arrays.stream(ids).boxed().toList();
+
+        Map<Long, GroupBalanceEntity> stored = new HashMap<>();
+        for (GroupBalanceEntity row : rows) {
+            stored.put(row.getProfileId(), row);
+        }
+        if (repair && !stored.keySet().containsAll(memberIds)) {
+            return null;
+        }
+
+        MemberTotals expected = debtService.replay(ids,
+                expenseRepository.sumSplittableByPayer(memberIds),
+                expenseRepository.sumSettlementsByPayerAndReceiver(memberIds));
+
+        List<GroupBalanceDriftDTO> drift = new ArrayList<>();
+        for (int k = 0; k < ids.length; k++) {
+            GroupBalanceEntity row = stored.remove(ids[k]);
+            BigDecimal paid = fromPaise(expected.paidSplittable()[k]);
+            BigDecimal settlement = fromPaise(expected.settlementNet()[k]);
+            BigDecimal ledgerPaid = row != null ? row.getPaidSplittable() : BigDecimal.ZERO;
+            BigDecimal ledgerSettlement = row != null ? row.getSettlementNet() : BigDecimal.ZERO;
+            if (paid.compareTo(ledgerPaid) == 0 && settlement.compareTo(ledgerSettlement) == 0) {
+                continue;
+            }
+            drift.add(drift(groupId, ids[k], ledgerPaid, paid, ledgerSettlement, settlement));
+            if (repair) {
+                add(groupId, ids[k], paid.subtract(ledgerPaid), settlement.subtract(ledgerSettlement));
+            }
+        }
+
+        // Rows left over belong to profiles that are no longer members
+        for (GroupBalanceEntity row : stored.values()) {
+            drift.add(drift(groupId, row.getProfileId(), row.getPaidSplittable(), BigDecimal.ZERO,
+                    row.getSettlementNet(), BigDecimal.ZERO));
+            if (repair) {
+                groupBalanceRepository.delete(row);
+            }
+        }
+        return drift;
+    }
+
+    private GroupBalanceDriftDTO drift(String groupId, Long profileId, BigDecimal ledgerPaid, BigDecimal sourcePaid,
+                                       BigDecimal ledgerSettlement, BigDecimal sourceSettlement) {
+        return GroupBalanceDriftDTO.builder()
+                .groupId(groupId)
+                .profileId(profileId)
+                .ledgerPaidSplittable(ledgerPaid)
+                .sourcePaidSplittable(sourcePaid)
+                .ledgerSettlementNet(ledgerSettlement)
+                .sourceSettlementNet(sourceSettlement)
+                .build();
+    }
+}
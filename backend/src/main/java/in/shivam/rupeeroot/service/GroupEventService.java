@@ -0,0 +1,183 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.dto.ExpenseDTO;
+import in.shivam.rupeeroot.dto.GroupEventBatchDTO;
+import in.shivam.rupeeroot.dto.GroupEventDTO;
+import in.shivam.rupeeroot.dto.IncomeDTO;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change notifications for expenses and incomes. Services publish a Change inside their transaction;
+ * once it commits, it joins the pending batch of its topic. A batch is flushed when its topic has been
+ * quiet for app.group-events.coalesce-window, and at the latest app.group-events.max-delay after its
+ * first change (plus the flush itself): one bump of the group's generation (which also retires its
+ * cached dashboard), one totals read, and one GroupEventBatchDTO to the group's topic. So a burst of
+ * writes (bulk entry) costs one broadcast and one cache invalidation instead of one per write.
+ * Flushes run on a single thread, so batches of a group go out in commit order. Nothing is sent for
+ * a transaction that rolls back. A window of 0 flushes every change on the committing thread.
+ */
+@Service
+@Slf4j
+public class GroupEventService {
+
+    public record Change(ProfilePrincipal actor, GroupEventDTO.Type type, ExpenseDTO expense, IncomeDTO income) {}
+
+    // Changes waiting for one topic; guarded by the map's per-key compute
+    private static final class Batch {
+        private final List<Change> changes = new ArrayList<>();
+        private final long firstAt = System.nanoTime();
+        private ScheduledFuture<?> flush;
+    }
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final GroupVersionService groupVersionService;
+    private final GroupMembershipService groupMembershipService;
+    private final MonthlyTotalService monthlyTotalService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowNanos;
+    private final long maxDelayNanos;
+
+    private final Map<String, Batch> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "group-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DistributionSummary batchSizes;
+    private final Timer addedDelay;
+
+    public GroupEventService(ApplicationEventPublisher eventPublisher,
+                             GroupVersionService groupVersionService,
+                             GroupMembershipService groupMembershipService,
+                             MonthlyTotalService monthlyTotalService,
+                             SimpMessagingTemplate messagingTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.group-events.coalesce-window:300ms}") Duration window,
+                             @Value("${app.group-events.max-delay:1s}") Duration maxDelay) {
+        this.eventPublisher = eventPublisher;
+        this.groupVersionService = groupVersionService;
+        this.groupMembershipService = groupMembershipService;
+        this.monthlyTotalService = monthlyTotalService;
+        this.messagingTemplate = messagingTemplate;
+        this.windowNanos = window.toNanos();
+        this.maxDelayNanos = Math.max(maxDelay.toNanos(), windowNanos);
+
+        // count = broadcasts, total = changes, mean = coalescing ratio
+        this.batchSizes = DistributionSummary.builder("group.events.batch.size")
+                .description("Expense/income changes per group broadcast")
+                .register(meterRegistry);
+        this.addedDelay = Timer.builder("group.events.delay")
+                .description("Time from a batch's first commit to its broadcast")
+                .register(meterRegistry);
+    }
+
+    public void expenseChanged(ProfilePrincipal actor, GroupEventDTO.Type type, ExpenseDTO expense) {
+        eventPublisher.publishEvent(new Change(actor, type, expense, null));
+    }
+
+    public void incomeChanged(ProfilePrincipal actor, GroupEventDTO.Type type, IncomeDTO income) {
+        eventPublisher.publishEvent(new Change(actor, type, null, income));
+    }
+
+    // Runs on the request thread after commit (or straight away outside a transaction)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChange(Change change) {
+        String destination = destination(change);
+        if (windowNanos == 0) {
+            send(destination, List.of(change), System.nanoTime());
+            return;
+        }
+        pending.compute(destination, (key, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+            }
+            batch.changes.add(change);
+            if (batch.flush != null) {
+                batch.flush.cancel(false);
+            }
+            // Debounce: wait for a quiet window, but not past max-delay from the first change
+            long untilMax = maxDelayNanos - (System.nanoTime() - batch.firstAt);
+            batch.flush = flusher.schedule(() -> flush(key), Math.max(0, Math.min(windowNanos, untilMax)), TimeUnit.NANOSECONDS);
+            return batch;
+        });
+    }
+
+    private void flush(String destination) {
+        // A change committing from here on starts a new batch, flushed after this one (same thread)
+        Batch batch = pending.remove(destination);
+        if (batch != null) {
+            send(destination, batch.changes, batch.firstAt);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdownNow();
+        pending.keySet().forEach(this::flush);
+    }
+
+    private void send(String destination, List<Change> changes, long firstAt) {
+        ProfilePrincipal actor = changes.get(changes.size() - 1).actor();
+        long version = groupVersionService.bump(groupVersionService.scopeOf(actor));
+        try {
+            // Ledger reads, committed state: include concurrent changes whose events may still be on their way
+            List<Long> familyIds = groupMembershipService.getFamilyProfileIds(actor);
+            BigDecimal totalIncome = monthlyTotalService.getTotalIncome(familyIds);
+            BigDecimal totalExpense = monthlyTotalService.getTotalExpense(familyIds);
+
+            GroupEventBatchDTO batch = GroupEventBatchDTO.builder()
+                    .version(version)
+                    .events(changes.stream().map(this::toDTO).toList())
+                    .totalIncome(totalIncome)
+                    .totalExpense(totalExpense)
+                    .totalBalance(totalIncome.subtract(totalExpense))
+                    .build();
+            messagingTemplate.convertAndSend(destination, batch);
+            batchSizes.record(changes.size());
+            addedDelay.record(System.nanoTime() - firstAt, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            // The changes are committed; clients catch up on their next refetch (the version gap tells them)
+            log.warn("Group events for {} not sent ({} changes): {}", destination, changes.size(), e.getMessage());
+        }
+    }
+
+    private GroupEventDTO toDTO(Change change) {
+        return GroupEventDTO.builder()
+                .type(change.type())
+                .profileId(change.actor().getId())
+                .expense(change.expense())
+                .income(change.income())
+                .build();
+    }
+
+    private String destination(Change change) {
+        ProfilePrincipal actor = change.actor();
+        String topic = change.expense() != null ? "expenses" : "incomes";
+        return actor.isInGroup()
+                ? "/topic/groups/" + actor.getGroupId() + "/" + topic
+                : "/topic/user/" + actor.getId() + "/" + topic;
+    }
+}
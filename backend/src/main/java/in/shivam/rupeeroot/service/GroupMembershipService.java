@@ -0,0 +1,151 @@
+package in.shivam.rupeeroot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Group -> member ids, cached per node as primitive long arrays.
+ * Membership only changes through GroupService.createGroup/joinGroup, which call {@link #invalidate};
+ * the invalidation is broadcast on a Redis channel so every node drops its copy.
+ * The TTL is only a safety net for a lost broadcast.
+ */
+@Service
+@Slf4j
+public class GroupMembershipService implements MessageListener {
+
+    private static final String SEPARATOR = "|";
+
+    private final ProfileRepository profileRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final Cache<String, long[]> members;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Lets a node ignore its own broadcasts - it has already invalidated locally
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public GroupMembershipService(ProfileRepository profileRepository,
+                                  StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.membership.cache.max-entries:10000}") long maxEntries,
+                                  @Value("${app.membership.cache.ttl:10m}") Duration ttl,
+                                  @Value("${app.membership.invalidation-channel:rupeeroot:membership:evict}") String channel) {
+        this.profileRepository = profileRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channel = channel;
+        this.members = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+    }
+
+    private Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("group.membership.cache.requests")
+                .description("Group membership cache lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    // --- READ SIDE ---
+
+    /**
+     * Ids whose data the user sees: the whole group for family members, just themselves otherwise.
+     */
+    public List<Long> getFamilyProfileIds(ProfilePrincipal principal) {
+        if (!principal.isInGroup()) {
+            return List.of(principal.getId());
+        }
+        return Arrays.stream(getMemberIds(principal.getGroupId())).boxed().toList();
+    }
+
+    /**
+     * Member ids of a group, ascending. Empty when no profile carries the group id.
+     * Callers must not modify the returned array.
+     */
+    public long[] getMemberIds(String groupId) {
+        long[] ids = members.getIfPresent(groupId);
+        if (ids != null) {
+            hits.increment();
+            return ids;
+        }
+        misses.increment();
+        return members.get(groupId, this::load);
+    }
+
+    private long[] load(String groupId) {
+        return profileRepository.findIdsByGroupId(groupId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    // --- INVALIDATION ---
+
+    /**
+     * Drops the cached members of a group on every node.
+     * Runs after commit when called inside a transaction, so no node can reload the old membership.
+     */
+    public void invalidate(String groupId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(groupId);
+                }
+            });
+        } else {
+            invalidateNow(groupId);
+        }
+    }
+
+    private void invalidateNow(String groupId) {
+        members.invalidate(groupId);
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + SEPARATOR + groupId);
+        } catch (Exception e) {
+            // Other nodes fall back to the TTL if the broadcast is lost
+            log.warn("Failed to publish membership invalidation for group {}: {}", groupId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 2);
+        if (parts.length != 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        members.invalidate(parts[1]);
+    }
+}
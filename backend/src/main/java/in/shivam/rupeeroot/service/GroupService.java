@@ -2,28 +2,31 @@ package in.shivam.rupeeroot.service;
 
 import in.shivam.rupeeroot.dto.DebtSettlementDTO; // Import DTO
 import in.shivam.rupeeroot.dto.ProfileDTO;
-import in.shivam.rupeeroot.entity.ExpenseEntity;
 import in.shivam.rupeeroot.entity.ProfileEntity;
-import in.shivam.rupeeroot.repository.ExpenseRepository; // Import Repo
 import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class GroupService {
 
     private final ProfileRepository profileRepository;
-    private final ExpenseRepository expenseRepository; // 1. Inject ExpenseRepo
     private final EmailService emailService;
-    private final DebtSimplificationService debtService; // 2. Inject Algorithm Service
+    private final GroupBalanceService groupBalanceService;
+    private final GroupVersionService groupVersionService;
+    private final ProfileService profileService;
+    private final GroupMembershipService groupMembershipService;
+    private final TransactionSearchService transactionSearchService;
 
+    // Managed entity - only needed where the profile itself is modified
     private ProfileEntity getLoggedInUser() {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
         return profileRepository.findByEmail(email)
@@ -31,6 +34,7 @@ public class GroupService {
     }
 
     // ... (Keep createGroup, joinGroup, inviteMember as they were) ...
+    @Transactional
     public ProfileDTO createGroup() {
         ProfileEntity user = getLoggedInUser();
         if (user.getGroupId() != null && !user.getGroupId().isEmpty()) {
@@ -39,26 +43,39 @@ public class GroupService {
         String newGroupId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         user.setGroupId(newGroupId);
         ProfileEntity saved = profileRepository.save(user);
+        // The creator's own history becomes group history
+        groupBalanceService.rebuildGroup(newGroupId);
+        // Membership changed - start the group's dashboard cache on a fresh generation once this commits
+        groupMembershipService.invalidate(newGroupId);
+        transactionSearchService.invalidate(groupVersionService.scopeOf(user.getId(), null));
+        groupVersionService.bumpAfterCommit(groupVersionService.scopeOf(saved));
         return mapToDTO(saved);
     }
 
+    @Transactional
     public ProfileDTO joinGroup(String groupId) {
         ProfileEntity user = getLoggedInUser();
         if (user.getGroupId() != null && !user.getGroupId().isEmpty()) {
             throw new RuntimeException("You are already in a group. Leave it before joining another.");
         }
         String cleanGroupId = groupId.trim().toUpperCase();
-        List<ProfileEntity> groupMembers = profileRepository.findByGroupId(cleanGroupId);
-        if (groupMembers.isEmpty()) {
+        if (groupMembershipService.getMemberIds(cleanGroupId).length == 0) {
             throw new RuntimeException("Invalid Group ID. No such group exists.");
         }
         user.setGroupId(cleanGroupId);
         ProfileEntity saved = profileRepository.save(user);
+        // The joiner's history now counts towards the group's debts
+        groupBalanceService.rebuildGroup(cleanGroupId);
+        // Existing members must now see the new member's data too
+        groupMembershipService.invalidate(cleanGroupId);
+        transactionSearchService.invalidate(groupVersionService.scopeOf(saved));
+        transactionSearchService.invalidate(groupVersionService.scopeOf(saved.getId(), null));
+        groupVersionService.bumpAfterCommit(groupVersionService.scopeOf(saved));
         return mapToDTO(saved);
     }
 
     public void inviteMember(String emailToInvite) {
-        ProfileEntity currentUser = getLoggedInUser();
+        ProfilePrincipal currentUser = profileService.getCurrentPrincipal();
         String groupCode = currentUser.getGroupId();
         if (groupCode == null || groupCode.isEmpty()) {
             throw new RuntimeException("You are not part of a group yet. Create one first!");
@@ -68,22 +85,16 @@ public class GroupService {
 
     // --- NEW METHOD FOR STAGE 2 ---
     public List<DebtSettlementDTO> getGroupDebts() {
-        ProfileEntity currentUser = getLoggedInUser();
+        ProfilePrincipal currentUser = profileService.getCurrentPrincipal();
 
         // 1. Check if user is in a group
-        if (currentUser.getGroupId() == null || currentUser.getGroupId().isEmpty()) {
+        if (!currentUser.isInGroup()) {
             return List.of(); // Return empty list if no group
         }
 
-        // 2. Get all group members
-        List<ProfileEntity> groupMembers = profileRepository.findByGroupId(currentUser.getGroupId());
-        List<Long> memberIds = groupMembers.stream().map(ProfileEntity::getId).collect(Collectors.toList());
-
-        // 3. Get ALL expenses for these members
-        List<ExpenseEntity> groupExpenses = expenseRepository.findByProfileIdIn(memberIds);
-
-        // 4. Run the Algorithm
-        return debtService.simplifyDebts(groupExpenses, groupMembers);
+        // 2. Plan over the running balances - cached until a splittable expense, settlement or join changes them
+        String groupId = currentUser.getGroupId();
+        return groupBalanceService.getSettlementPlan(groupBalanceService.planCacheKey(groupId), groupId);
     }
     // ------------------------------
 
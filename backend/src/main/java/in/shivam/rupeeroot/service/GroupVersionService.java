@@ -0,0 +1,71 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.entity.ProfileEntity;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Generation counter per group (or per solo profile), stored in Redis.
+ * The counter is part of the dashboard cache key, so invalidating a whole group is one INCR;
+ * entries of older generations are never read again and simply expire through the cache TTL.
+ */
+@Service
+@RequiredArgsConstructor
+public class GroupVersionService {
+
+    private static final String KEY_PREFIX = "rupeeroot:version:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    // "g:<groupId>" for family groups, "p:<profileId>" for independent users
+    public String scopeOf(ProfileEntity profile) {
+        return scopeOf(profile.getId(), profile.getGroupId());
+    }
+
+    public String scopeOf(ProfilePrincipal principal) {
+        return scopeOf(principal.getId(), principal.getGroupId());
+    }
+
+    public String scopeOf(Long profileId, String groupId) {
+        if (groupId == null || groupId.isEmpty()) {
+            return "p:" + profileId;
+        }
+        return "g:" + groupId;
+    }
+
+    public long currentVersion(String scope) {
+        String value = redisTemplate.opsForValue().get(KEY_PREFIX + scope);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    public String dashboardKey(ProfilePrincipal principal) {
+        String scope = scopeOf(principal);
+        return scope + ":v" + currentVersion(scope);
+    }
+
+    public long bump(String scope) {
+        Long version = redisTemplate.opsForValue().increment(KEY_PREFIX + scope);
+        return version != null ? version : 0L;
+    }
+
+    /**
+     * Bumps once the surrounding transaction has committed (immediately when there is none).
+     * Bumping earlier would let a concurrent reader cache pre-commit data under the new version.
+     */
+    public void bumpAfterCommit(String scope) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(scope);
+                }
+            });
+        } else {
+            bump(scope);
+        }
+    }
+}
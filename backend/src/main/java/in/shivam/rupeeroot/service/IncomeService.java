@@ -1,5 +1,7 @@
 package in.shivam.rupeeroot.service;
 
+import in.shivam.rupeeroot.dto.CursorPageDTO;
+import in.shivam.rupeeroot.dto.GroupEventDTO;
 import in.shivam.rupeeroot.dto.IncomeDTO;
 import in.shivam.rupeeroot.entity.CategoryEntity;
 import in.shivam.rupeeroot.entity.IncomeEntity;
@@ -7,16 +9,23 @@ import in.shivam.rupeeroot.entity.ProfileEntity;
 import in.shivam.rupeeroot.repository.CategoryRepository;
 import in.shivam.rupeeroot.repository.IncomeRepository;
 import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.repository.SqlDialect;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
+import in.shivam.rupeeroot.util.KeysetCursor;
+import in.shivam.rupeeroot.util.TransactionSortField;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.Cache; // Import Cache
-import org.springframework.cache.CacheManager; // Import CacheManager
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,87 +36,102 @@ public class IncomeService {
     private final ProfileService profileService;
     private final ProfileRepository profileRepository;
 
-    // 1. Inject CacheManager
-    private final CacheManager cacheManager;
-
-    private List<Long> getFamilyProfileIds(ProfileEntity currentProfile) {
-        if (currentProfile.getGroupId() == null || currentProfile.getGroupId().isEmpty()) {
-            return List.of(currentProfile.getId());
-        } else {
-            List<ProfileEntity> familyMembers = profileRepository.findByGroupId(currentProfile.getGroupId());
-            return familyMembers.stream()
-                    .map(ProfileEntity::getId)
-                    .collect(Collectors.toList());
-        }
-    }
+    // 1. Inject the cache generation counters
+    private final GroupVersionService groupVersionService;
+    private final GroupEventService groupEventService;
+    private final MonthlyTotalService monthlyTotalService;
+    private final GroupMembershipService groupMembershipService;
+    private final TransactionSearchService transactionSearchService;
+    private final ExcelService excelService;
+    private final SqlDialect sqlDialect;
 
-    // 2. Helper method to manually clear cache for EVERYONE in the group
-    private void clearDashboardCacheForGroup(ProfileEntity currentProfile) {
-        List<Long> familyIds = getFamilyProfileIds(currentProfile);
-        Cache dashboardCache = cacheManager.getCache("dashboard");
-        if (dashboardCache != null) {
-            for (Long id : familyIds) {
-                dashboardCache.evict(id); // This deletes the cache entry for specific user ID
-            }
-        }
-    }
 
     // 3. Removed @CacheEvict annotation
+    @Transactional
     public IncomeDTO addIncome(IncomeDTO dto) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         CategoryEntity category = categoryRepository.findById(dto.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
 
-        IncomeEntity entity = toEntity(dto, profile, category);
+        // Reference only - the insert needs the id, not the row
+        IncomeEntity entity = toEntity(dto, profileRepository.getReferenceById(profile.getId()), category);
         IncomeEntity saved = incomeRepository.save(entity);
+        monthlyTotalService.recordIncome(saved);
 
-        // 4. Trigger manual eviction
-        clearDashboardCacheForGroup(profile);
+        transactionSearchService.onAdded(groupVersionService.scopeOf(profile), TransactionSearchService.INCOME, saved.getId(), saved.getName());
 
-        return toDTO(saved);
+        // 4. Bump the group's generation (dashboard cache) and notify members, after commit
+        IncomeDTO result = toDTO(saved, profile.getFullName());
+        groupEventService.incomeChanged(profile, GroupEventDTO.Type.INCOME_ADDED, result);
+        return result;
     }
 
-    public List<IncomeDTO> getCurrentMonthIncomesForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
-        List<Long> familyIds = getFamilyProfileIds(profile);
-        LocalDate now = LocalDate.now();
-        LocalDate startDate = now.withDayOfMonth(1);
-        LocalDate endDate = now.withDayOfMonth(now.lengthOfMonth());
-
-        List<IncomeEntity> list = incomeRepository.findByProfileIdInAndDateBetween(familyIds, startDate, endDate);
-        return list.stream().map(this::toDTO).toList();
+    // Streams the range from a DB cursor straight into the workbook; nothing is collected in memory
+    @Transactional(readOnly = true)
+    public void exportIncomes(LocalDate startDate, LocalDate endDate, OutputStream os) throws IOException {
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+        try (Stream<IncomeDTO> rows = incomeRepository.streamRowsByProfileIdInAndDateBetween(familyIds, startDate, endDate)) {
+            excelService.writeIncomesToExcel(os, rows);
+        }
     }
 
     public BigDecimal getTotalIncomeForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
-        List<Long> familyIds = getFamilyProfileIds(profile);
-        BigDecimal total = incomeRepository.findTotalIncomeByProfileIds(familyIds);
-        return total != null ? total : BigDecimal.ZERO;
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+        // Served from the running ledger instead of SUM over every income row
+        return monthlyTotalService.getTotalIncome(familyIds);
     }
 
     public List<IncomeDTO> getLatest5IncomesForCurrentUser() {
-        ProfileEntity profile = profileService.getCurrentProfile();
-        List<Long> familyIds = getFamilyProfileIds(profile);
-        List<IncomeEntity> list = incomeRepository.findTop5ByProfileIdInOrderByDateDesc(familyIds);
-        return list.stream().map(this::toDTO).toList();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+        return incomeRepository.findLatestRowsByProfileIdIn(familyIds, Limit.of(5));
     }
 
-    public List<IncomeDTO> getIncomesForUser(Long profileId, LocalDate startDate, LocalDate endDate, String keyword, Sort sort) {
-        List<Long> familyIds;
-        if (profileId == null) {
-            ProfileEntity profile = profileService.getCurrentProfile();
-            familyIds = getFamilyProfileIds(profile);
-        } else {
-            familyIds = List.of(profileId);
+    // One keyset page of the user's (or family's) incomes; nextCursor is null on the last page
+    public CursorPageDTO<IncomeDTO> getIncomePage(LocalDate startDate, LocalDate endDate, String keyword,
+                                                TransactionSortField sortField, Sort.Direction direction,
+                                                KeysetCursor after, int limit) {
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
+        List<Long> familyIds = groupMembershipService.getFamilyProfileIds(profile);
+
+        // Keyword goes through the trigram index when it is warm; null means fall back to LIKE in SQL
+        long[] candidates = transactionSearchService.findCandidates(
+                groupVersionService.scopeOf(profile), TransactionSearchService.INCOME, familyIds, keyword);
+        if (candidates != null && candidates.length == 0) {
+            return CursorPageDTO.<IncomeDTO>builder().items(List.of()).build();
+        }
+        List<Long> candidateIds = candidates != null ? Arrays.stream(candidates).boxed().toList() : null;
+
+        // One extra row tells us whether another page exists
+        List<IncomeDTO> rows = incomeRepository.findPage(familyIds, startDate, endDate,
+                candidateIds == null ? keyword : null, candidateIds, sortField, direction, after, sqlDialect.sortsNullsLow(), limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<IncomeDTO> page = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            IncomeDTO last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.at(sortField, direction, last.getId(), last.getDate(), last.getAmount(), last.getName()).encode();
         }
+        return CursorPageDTO.<IncomeDTO>builder()
+                .items(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
 
-        List<IncomeEntity> list = incomeRepository.findByProfileIdInAndDateBetweenAndNameContainingIgnoreCase(familyIds, startDate, endDate, keyword, sort);
-        return list.stream().map(this::toDTO).toList();
+    // Current month, newest first
+    public CursorPageDTO<IncomeDTO> getCurrentMonthIncomePage(KeysetCursor after, int limit) {
+        LocalDate now = LocalDate.now();
+        return getIncomePage(now.withDayOfMonth(1), now.withDayOfMonth(now.lengthOfMonth()), null,
+                TransactionSortField.DATE, Sort.Direction.DESC, after, limit);
     }
 
     // 3. Removed @CacheEvict annotation
+    @Transactional
     public void deleteIncome(Long id) {
-        ProfileEntity profile = profileService.getCurrentProfile();
+        ProfilePrincipal profile = profileService.getCurrentPrincipal();
         IncomeEntity entity = incomeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Income not found"));
 
@@ -115,9 +139,12 @@ public class IncomeService {
             throw new RuntimeException("Unauthorized to delete this income (created by another member)");
         }
         incomeRepository.delete(entity);
+        monthlyTotalService.reverseIncome(entity);
+
+        transactionSearchService.onRemoved(groupVersionService.scopeOf(profile), TransactionSearchService.INCOME, entity.getId());
 
-        // 4. Trigger manual eviction
-        clearDashboardCacheForGroup(profile);
+        // 4. Bump the group's generation (dashboard cache) and notify members, after commit
+        groupEventService.incomeChanged(profile, GroupEventDTO.Type.INCOME_DELETED, toDTO(entity, profile.getFullName()));
     }
 
     private IncomeEntity toEntity(IncomeDTO dto, ProfileEntity profile, CategoryEntity category) {
@@ -131,7 +158,9 @@ public class IncomeService {
                 .build();
     }
 
-    private IncomeDTO toDTO(IncomeEntity entity) {
+    // Only for freshly saved rows; lists come from the projection queries in the repository.
+    // creatorName is passed in because the caller already knows it (avoids loading the profile proxy)
+    private IncomeDTO toDTO(IncomeEntity entity, String creatorName) {
         return IncomeDTO.builder()
                 .id(entity.getId())
                 .name(entity.getName())
@@ -142,7 +171,7 @@ public class IncomeService {
                 .date(entity.getDate())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
-                .creatorName(entity.getProfile().getFullName())
+                .creatorName(creatorName)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.entity.JobPartitionEntity;
+import in.shivam.rupeeroot.repository.JobPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shares a scheduled job out between every node that fires it. The job's rows are split into
+ * app.jobs.partitions.count hash partitions (MOD(id, count)); each node walks the partitions and claims the
+ * ones nobody has started for this run in tbl_job_partitions, so N nodes each do about 1/N of the work
+ * and every partition runs once per run.
+ * A claim is a lease: the task renews it at every checkpoint. If a node dies, its partitions stop being
+ * renewed and resumeAbandoned (run periodically by every node) takes them over from the last checkpoint.
+ * All nodes must use the same partition count.
+ */
+@Service
+@Slf4j
+public class JobPartitionService {
+
+    // Work for one partition: handle ids > afterId where MOD(id, partitions) = partition, checkpointing as it goes
+    @FunctionalInterface
+    public interface PartitionTask {
+        void run(int partition, int partitions, long afterId, Checkpoint checkpoint);
+    }
+
+    // Records progress and renews the lease; false means another node took the partition and the task must stop
+    @FunctionalInterface
+    public interface Checkpoint {
+        boolean save(long lastId);
+    }
+
+    private final JobPartitionRepository jobPartitionRepository;
+    private final int partitions;
+    private final Duration lease;
+
+    // Unique per application context, not per host, so several contexts in one JVM act as separate nodes
+    private final String nodeId;
+
+    public JobPartitionService(JobPartitionRepository jobPartitionRepository,
+                               @Value("${app.jobs.partitions.count:8}") int partitions,
+                               @Value("${app.jobs.partitions.lease:5m}") Duration lease) {
+        this.jobPartitionRepository = jobPartitionRepository;
+        this.partitions = partitions;
+        this.lease = lease;
+        this.nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // Scheduled run: claims every partition not yet started for runKey (and any abandoned ones). Returns how many this node ran
+    public int runPartitioned(String jobName, LocalDate runKey, PartitionTask task) {
+        ensurePartitions(jobName);
+        return run(jobName, runKey, task, false);
+    }
+
+    // Periodic sweep: only takes over partitions of runKey whose holder stopped renewing
+    public int resumeAbandoned(String jobName, LocalDate runKey, PartitionTask task) {
+        return run(jobName, runKey, task, true);
+    }
+
+    private int run(String jobName, LocalDate runKey, PartitionTask task, boolean abandonedOnly) {
+        int ran = 0;
+        // Nodes firing at the same moment start at different partitions instead of racing for partition 0
+        int offset = ThreadLocalRandom.current().nextInt(partitions);
+        for (int k = 0; k < partitions; k++) {
+            int partition = (offset + k) % partitions;
+            if (!acquire(jobName, partition, runKey, abandonedOnly)) {
+                continue;
+            }
+            long afterId = jobPartitionRepository.findByJobNameAndPartitionNo(jobName, partition)
+                    .map(JobPartitionEntity::getLastId)
+                    .orElse(0L);
+            if (afterId > 0) {
+                log.info("Job {} partition {}: resuming after id {}", jobName, partition, afterId);
+            }
+            try {
+                task.run(partition, partitions, afterId, lastId ->
+                        jobPartitionRepository.checkpoint(jobName, partition, nodeId, lastId, LocalDateTime.now().plus(lease)) == 1);
+                // 0 when the task stopped because another node took the partition over
+                if (jobPartitionRepository.complete(jobName, partition, nodeId) == 1) {
+                    ran++;
+                }
+            } catch (Exception e) {
+                // Left RUNNING with an expired lease: the next sweep resumes it from the last checkpoint
+                log.error("Job {} partition {} failed on {}: {}", jobName, partition, nodeId, e.getMessage());
+                jobPartitionRepository.release(jobName, partition, nodeId, LocalDateTime.now());
+            }
+        }
+        return ran;
+    }
+
+    private boolean acquire(String jobName, int partition, LocalDate runKey, boolean abandonedOnly) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(lease);
+        if (!abandonedOnly && jobPartitionRepository.claim(jobName, partition, runKey, nodeId, leaseUntil) == 1) {
+            return true;
+        }
+        if (jobPartitionRepository.reclaim(jobName, partition, runKey, nodeId, now, leaseUntil) == 1) {
+            log.warn("Job {} partition {}: lease expired, taken over by {}", jobName, partition, nodeId);
+            return true;
+        }
+        return false;
+    }
+
+    // First run of a job (or a larger partition count): create the missing rows; another node may race us to it
+    private void ensurePartitions(String jobName) {
+        Set<Integer> existing = new HashSet<>(jobPartitionRepository.findPartitionNosByJobName(jobName));
+        for (int partition = 0; partition < partitions; partition++) {
+            if (existing.contains(partition)) {
+                continue;
+            }
+            try {
+                jobPartitionRepository.save(JobPartitionEntity.builder()
+                        .jobName(jobName)
+                        .partitionNo(partition)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Created by another node in the meantime
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
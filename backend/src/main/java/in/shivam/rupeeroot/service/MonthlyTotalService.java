@@ -0,0 +1,246 @@
+package in.shivam.rupeeroot.service;
+
+import in.shivam.rupeeroot.dto.LedgerDriftDTO;
+import in.shivam.rupeeroot.entity.ExpenseEntity;
+import in.shivam.rupeeroot.entity.IncomeEntity;
+import in.shivam.rupeeroot.entity.MonthlyTotalEntity;
+import in.shivam.rupeeroot.repository.ExpenseRepository;
+import in.shivam.rupeeroot.repository.IncomeRepository;
+import in.shivam.rupeeroot.repository.MonthlyTotalRepository;
+import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.repository.SqlDialect;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Maintains tbl_monthly_totals, the running ledger behind the dashboard totals.
+ * Writers call record/reverse inside their own transaction, so the ledger and the
+ * source rows always commit (or roll back) together.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MonthlyTotalService {
+
+    public static final String EXPENSE = "EXPENSE";
+    public static final String INCOME = "INCOME";
+
+    private final MonthlyTotalRepository monthlyTotalRepository;
+    private final ExpenseRepository expenseRepository;
+    private final IncomeRepository incomeRepository;
+    private final ProfileRepository profileRepository;
+    private final SqlDialect sqlDialect;
+    private final TransactionTemplate transactionTemplate;
+
+    // --- WRITE SIDE (called from ExpenseService / IncomeService) ---
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordExpense(ExpenseEntity expense) {
+        apply(expense.getProfile().getId(), expense.getDate(), EXPENSE,
+                Boolean.TRUE.equals(expense.getIsSettlement()), expense.getAmount());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reverseExpense(ExpenseEntity expense) {
+        apply(expense.getProfile().getId(), expense.getDate(), EXPENSE,
+                Boolean.TRUE.equals(expense.getIsSettlement()), negate(expense.getAmount()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordIncome(IncomeEntity income) {
+        apply(income.getProfile().getId(), income.getDate(), INCOME, false, income.getAmount());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reverseIncome(IncomeEntity income) {
+        apply(income.getProfile().getId(), income.getDate(), INCOME, false, negate(income.getAmount()));
+    }
+
+    private void apply(Long profileId, LocalDate date, String kind, boolean isSettlement, BigDecimal delta) {
+        if (delta == null || delta.signum() == 0) {
+            return;
+        }
+        LocalDate monthStart = (date != null ? date : LocalDate.now()).withDayOfMonth(1);
+        add(profileId, monthStart, kind, isSettlement, delta);
+    }
+
+    // One atomic statement that also creates the row, so concurrent first writes of a month don't collide
+    private void add(Long profileId, LocalDate monthStart, String kind, boolean isSettlement, BigDecimal delta) {
+        if (sqlDialect.isPostgres()) {
+            monthlyTotalRepository.upsertTotalPostgres(profileId, monthStart, kind, isSettlement, delta);
+        } else {
+            monthlyTotalRepository.upsertTotalMySql(profileId, monthStart, kind, isSettlement, delta);
+        }
+    }
+
+    private BigDecimal negate(BigDecimal amount) {
+        return amount != null ? amount.negate() : null;
+    }
+
+    // --- READ SIDE (Dashboard) ---
+
+    public BigDecimal getTotalExpense(List<Long> profileIds) {
+        BigDecimal total = monthlyTotalRepository.findTotalByProfileIdsAndKind(profileIds, EXPENSE);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    public BigDecimal getTotalIncome(List<Long> profileIds) {
+        BigDecimal total = monthlyTotalRepository.findTotalByProfileIdsAndKind(profileIds, INCOME);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    // One profile's spend (settlements excluded) in the month of the given date - a single-row read
+    public BigDecimal getMonthExpense(Long profileId, LocalDate date) {
+        BigDecimal total = monthlyTotalRepository.findMonthTotal(profileId, date.withDayOfMonth(1), EXPENSE);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    // --- REBUILD / VERIFY JOB ---
+
+    // A repair attempt is retried when a first write for a new month lands between finding the months and locking them
+    private static final int REPAIR_ATTEMPTS = 3;
+
+    // Nightly check of the ledger against tbl_expenses / tbl_incomes, repairing any drift it finds
+    @Scheduled(cron = "${app.ledger.reconcile-cron:0 30 3 * * *}", zone = "IST")
+    public void scheduledReconcile() {
+        log.info("Job started: monthly totals reconcile");
+        List<LedgerDriftDTO> drift = reconcile(true);
+        log.info("Job completed: monthly totals reconcile, {} drifted rows repaired", drift.size());
+    }
+
+    // First start after the ledger is introduced: seed it from existing rows
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (monthlyTotalRepository.count() == 0 && (expenseRepository.count() > 0 || incomeRepository.count() > 0)) {
+            log.info("Monthly totals ledger is empty, rebuilding from source rows");
+            reconcile(true);
+        }
+    }
+
+    /**
+     * Recomputes every ledger row from the source tables and compares it with what is stored, one profile
+     * at a time. A repair runs each profile in its own transaction, so only that profile's writers wait,
+     * and only for as long as its own rows take. Returns every row that did not match.
+     */
+    public List<LedgerDriftDTO> reconcile(boolean repair) {
+        Set<Long> profileIds = new TreeSet<>(profileRepository.findAllIds());
+        profileIds.addAll(monthlyTotalRepository.findProfileIds());
+
+        List<LedgerDriftDTO> drift = new ArrayList<>();
+        for (Long profileId : profileIds) {
+            drift.addAll(repair ? repairProfile(profileId) : compare(profileId, sourceTotals(profileId),
+                    stored(monthlyTotalRepository.findByProfileId(profileId)), false));
+        }
+
+        for (LedgerDriftDTO d : drift) {
+            log.warn("Ledger drift: profile={} month={} kind={} settlement={} ledger={} source={}",
+                    d.getProfileId(), d.getMonthStart(), d.getKind(), d.getIsSettlement(), d.getLedgerTotal(), d.getSourceTotal());
+        }
+        return drift;
+    }
+
+    /**
+     * Every month the source tables have gets a ledger row first (a zero upsert), then the profile's rows are
+     * locked, then its source rows are summed. A writer that commits meanwhile is therefore either in both the
+     * sum and the ledger, or waits on the lock and lands its increment after the repair. The months are found
+     * before the transaction starts, because under MySQL REPEATABLE READ the first plain read fixes the snapshot
+     * and it has to come after the lock. A first write for a month that appears after that has a row the lock
+     * did not cover, so the attempt is rolled back and made again.
+     */
+    private List<LedgerDriftDTO> repairProfile(Long profileId) {
+        for (int attempt = 1; attempt <= REPAIR_ATTEMPTS; attempt++) {
+            Set<LedgerKey> months = sourceTotals(profileId).keySet();
+            List<LedgerDriftDTO> drift = transactionTemplate.execute(status -> {
+                for (LedgerKey key : months) {
+                    add(key.profileId(), key.monthStart(), key.kind(), key.isSettlement(), BigDecimal.ZERO);
+                }
+                Map<LedgerKey, MonthlyTotalEntity> stored = stored(monthlyTotalRepository.findByProfileIdForUpdate(profileId));
+                Map<LedgerKey, BigDecimal> expected = sourceTotals(profileId);
+                if (!stored.keySet().containsAll(expected.keySet())) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return compare(profileId, expected, stored, true);
+            });
+            if (drift != null) {
+                return drift;
+            }
+        }
+        log.warn("Ledger repair skipped for profile {}: new months kept appearing while it ran", profileId);
+        return List.of();
+    }
+
+    private Map<LedgerKey, BigDecimal> sourceTotals(Long profileId) {
+        Map<LedgerKey, BigDecimal> expected = new HashMap<>();
+        for (Object[] row : expenseRepository.sumAmountsByMonth(profileId)) {
+            LedgerKey key = new LedgerKey(profileId, monthStart(row[0], row[1]), EXPENSE, (Boolean) row[2]);
+            expected.merge(key, orZero((BigDecimal) row[3]), BigDecimal::add);
+        }
+        for (Object[] row : incomeRepository.sumAmountsByMonth(profileId)) {
+            LedgerKey key = new LedgerKey(profileId, monthStart(row[0], row[1]), INCOME, false);
+            expected.merge(key, orZero((BigDecimal) row[2]), BigDecimal::add);
+        }
+        return expected;
+    }
+
+    private Map<LedgerKey, MonthlyTotalEntity> stored(List<MonthlyTotalEntity> ledger) {
+        Map<LedgerKey, MonthlyTotalEntity> stored = new HashMap<>();
+        for (MonthlyTotalEntity entity : ledger) {
+            stored.put(new LedgerKey(entity.getProfileId(), entity.getMonthStart(), entity.getKind(), entity.getIsSettlement()), entity);
+        }
+        return stored;
+    }
+
+    // Lists every row whose stored total differs from the source sum; a repair adds the difference to the row
+    private List<LedgerDriftDTO> compare(Long profileId, Map<LedgerKey, BigDecimal> expected,
+                                         Map<LedgerKey, MonthlyTotalEntity> stored, boolean repair) {
+        Set<LedgerKey> allKeys = new HashSet<>(expected.keySet());
+        allKeys.addAll(stored.keySet());
+
+        List<LedgerDriftDTO> drift = new ArrayList<>();
+        for (LedgerKey key : allKeys) {
+            BigDecimal sourceTotal = expected.getOrDefault(key, BigDecimal.ZERO);
+            MonthlyTotalEntity entity = stored.get(key);
+            BigDecimal ledgerTotal = entity != null ? entity.getTotal() : BigDecimal.ZERO;
+            if (sourceTotal.compareTo(ledgerTotal) == 0) {
+                continue;
+            }
+
+            drift.add(LedgerDriftDTO.builder()
+                    .profileId(profileId)
+                    .monthStart(key.monthStart())
+                    .kind(key.kind())
+                    .isSettlement(key.isSettlement())
+                    .ledgerTotal(ledgerTotal)
+                    .sourceTotal(sourceTotal)
+                    .build());
+
+            if (repair) {
+                add(profileId, key.monthStart(), key.kind(), key.isSettlement(), sourceTotal.subtract(ledgerTotal));
+            }
+        }
+        return drift;
+    }
+
+    private LocalDate monthStart(Object year, Object month) {
+        return LocalDate.of(((Number) year).intValue(), ((Number) month).intValue(), 1);
+    }
+
+    private BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private record LedgerKey(Long profileId, LocalDate monthStart, String kind, Boolean isSettlement) {
+    }
+}
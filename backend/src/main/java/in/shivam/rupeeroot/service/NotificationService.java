@@ -1,16 +1,23 @@
 package in.shivam.rupeeroot.service;
 
-import in.shivam.rupeeroot.dto.ExpenseDTO;
-import in.shivam.rupeeroot.entity.ProfileEntity;
+import in.shivam.rupeeroot.dto.DailyExpenseRowDTO;
+import in.shivam.rupeeroot.dto.DigestRecipientDTO;
 import in.shivam.rupeeroot.repository.ProfileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,49 +27,148 @@ public class NotificationService {
     private final ProfileRepository profileRepository;
     private final EmailService emailService;
     private final ExpenseService expenseService;
+    private final JobPartitionService jobPartitionService;
 
     @Value("${money.manager.frontend.url}")
     private String frontendUrl;
 
+    @Value("${app.digest.page-size:500}")
+    private int digestPageSize;
+
+    // Job names in tbl_job_partitions
+    private static final String REMINDER_JOB = "sendDailyIncomeExpenseReminder";
+    private static final String SUMMARY_JOB = "sendDailyExpenseSummary";
+
+    // Keyset page of one partition's recipients
+    @FunctionalInterface
+    private interface RecipientPages {
+        List<DigestRecipientDTO> after(long afterId, int partition, int partitions);
+    }
 
     @Scheduled(cron = "0 0 22 * * *", zone = "IST")
     public void sendDailyIncomeExpenseReminder() {
         log.info("Job started: sendDailyIncomeExpenseReminder()");
-        List<ProfileEntity> profiles = profileRepository.findAll();
-        for(ProfileEntity profile : profiles) {
-            String body = "Hi " + profile.getFullName() + ",<br><br>"
-                    + "This is a friendly reminder to add your income and expenses for today in Money-Root.<br><br>"
-                    + "<a href="+frontendUrl+" style='display:inline-block;padding:10px 20px;background-color:#4CAF50;color:#fff;text-decoration:none;border-radius:5px;font-weight:bold;'>Go to Money Manager</a>"
-                    + "<br><br>Best regards,<br> Money-Root Team";
-            emailService.sendEmail(profile.getEmail(), "Daily reminder: Add your income and expenses", body);
-        }
-        log.info("Job completed: sendDailyIncomeExpenseReminder()");
+        runReminder(LocalDate.now(), false);
     }
 
-    @Scheduled(cron = "0 0 23 * * *", zone = "IST")
+    /**
+     * Walks only the profiles that spent something today, a page at a time (keyset on id), and loads each
+     * page's expenses with one query. Each page's digests go out through EmailService.sendBulk, so only
+     * one page is ever in memory and SMTP connections are reused across messages.
+     */
+    @Scheduled(cron = "${app.digest.cron:0 0 23 * * *}", zone = "IST")
     public void sendDailyExpenseSummary() {
         log.info("Job started: sendDailyExpenseSummary()");
-        List<ProfileEntity> profiles = profileRepository.findAll();
-        for (ProfileEntity profile : profiles) {
-            List<ExpenseDTO> todaysExpenses = expenseService.getExpensesForUserOnDate(profile.getId(), LocalDate.now());
-            if (!todaysExpenses.isEmpty()) {
-                StringBuilder table = new StringBuilder();
-                table.append("<table style='border-collapse:collapse;width:100%;'>");
-                table.append("<tr style='background-color:#f2f2f2;'><th style='border:1px solid #ddd;padding:8px;'>S.No</th><th style='border:1px solid #ddd;padding:8px;'>Name</th><th style='border:1px solid #ddd;padding:8px;'>Amount</th><th style='border:1px solid #ddd;padding:8px;'>Category</th></tr>");
-                int i = 1;
-                for(ExpenseDTO expense : todaysExpenses) {
-                    table.append("<tr>");
-                    table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(i++).append("</td>");
-                    table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(expense.getName()).append("</td>");
-                    table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(expense.getAmount()).append("</td>");
-                    table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(expense.getCategoryId() != null ? expense.getCategoryName() : "N/A").append("</td>");
-                    table.append("</tr>");
+        runSummary(LocalDate.now(), false);
+    }
+
+    // Every node sweeps for partitions of today's runs left behind by a node that died mid-job
+    @Scheduled(fixedDelayString = "${app.jobs.partitions.reclaim-interval:60000}")
+    public void resumeAbandonedJobs() {
+        LocalDate today = LocalDate.now();
+        runReminder(today, true);
+        runSummary(today, true);
+    }
+
+    private void runReminder(LocalDate runKey, boolean abandonedOnly) {
+        runMailJob(REMINDER_JOB, runKey, abandonedOnly,
+                (afterId, partition, partitions) -> profileRepository.findRecipientsAfter(afterId, partition, partitions, Limit.of(digestPageSize)),
+                page -> page.stream().map(this::reminderMessage).toList());
+    }
+
+    private void runSummary(LocalDate date, boolean abandonedOnly) {
+        runMailJob(SUMMARY_JOB, date, abandonedOnly,
+                (afterId, partition, partitions) -> profileRepository.findDigestRecipientsAfter(afterId, date, partition, partitions, Limit.of(digestPageSize)),
+                page -> summaryMessages(page, date));
+    }
+
+    // Runs the partitions this node gets (see JobPartitionService); each is paged, bulk-sent and checkpointed per page
+    private void runMailJob(String job, LocalDate runKey, boolean abandonedOnly, RecipientPages pages,
+                            Function<List<DigestRecipientDTO>, List<SimpleMailMessage>> render) {
+        long start = System.nanoTime();
+        AtomicLong sent = new AtomicLong();
+        AtomicLong retried = new AtomicLong();
+        JobPartitionService.PartitionTask task = (partition, partitions, afterId, checkpoint) -> {
+            long lastId = afterId;
+            List<DigestRecipientDTO> page;
+            do {
+                page = pages.after(lastId, partition, partitions);
+                if (page.isEmpty()) {
+                    break;
+                }
+                EmailService.BulkSendResult result = sendPage(render.apply(page));
+                sent.addAndGet(result.sent());
+                retried.addAndGet(result.failed().size());
+                lastId = page.get(page.size() - 1).getId();
+                if (!checkpoint.save(lastId)) {
+                    log.warn("{}: lost the lease on partition {}, stopping", job, partition);
+                    return;
                 }
-                table.append("</table>");
-                String body = "Hi "+profile.getFullName()+",<br/><br/> Here is a summary of your expenses for today:<br/><br/>"+table+"<br/><br/>Best regards,<br/>Money Manager Team";
-                emailService.sendEmail(profile.getEmail(), "Your daily Expense summary", body);
+            } while (page.size() == digestPageSize);
+        };
+        int partitionsRun = abandonedOnly
+                ? jobPartitionService.resumeAbandoned(job, runKey, task)
+                : jobPartitionService.runPartitioned(job, runKey, task);
+        if (!abandonedOnly || partitionsRun > 0) {
+            double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+            log.info("Job completed: {}(){}, {} partitions, {} sent, {} queued for retry in {} ms ({} messages/sec)",
+                    job, abandonedOnly ? " (resumed)" : "", partitionsRun, sent.get(), retried.get(),
+                    Math.round(seconds * 1000), Math.round((sent.get() + retried.get()) / seconds));
+        }
+    }
+
+    private SimpleMailMessage reminderMessage(DigestRecipientDTO profile) {
+        String body = "Hi " + profile.getFullName() + ",<br><br>"
+                + "This is a friendly reminder to add your income and expenses for today in Money-Root.<br><br>"
+                + "<a href="+frontendUrl+" style='display:inline-block;padding:10px 20px;background-color:#4CAF50;color:#fff;text-decoration:none;border-radius:5px;font-weight:bold;'>Go to Money Manager</a>"
+                + "<br><br>Best regards,<br> Money-Root Team";
+        return emailService.bulkMessage(profile.getEmail(), "Daily reminder: Add your income and expenses", body);
+    }
+
+    // One query for the page's expenses, then one digest per recipient
+    private List<SimpleMailMessage> summaryMessages(List<DigestRecipientDTO> page, LocalDate date) {
+        List<Long> ids = page.stream().map(DigestRecipientDTO::getId).toList();
+        Map<Long, List<DailyExpenseRowDTO>> expensesByProfile = expenseService.getExpensesForUsersOnDate(ids, date).stream()
+                .collect(Collectors.groupingBy(DailyExpenseRowDTO::getProfileId));
+
+        List<SimpleMailMessage> messages = new ArrayList<>(page.size());
+        for (DigestRecipientDTO recipient : page) {
+            List<DailyExpenseRowDTO> todaysExpenses = expensesByProfile.get(recipient.getId());
+            if (todaysExpenses != null) {
+                messages.add(emailService.bulkMessage(recipient.getEmail(), "Your daily Expense summary",
+                        expenseSummaryBody(recipient, todaysExpenses)));
             }
         }
-        log.info("Job completed: sendDailyExpenseSummary()");
+        return messages;
+    }
+
+    // Whatever the bulk send could not deliver goes to the outbox, which retries it with backoff
+    private EmailService.BulkSendResult sendPage(List<SimpleMailMessage> messages) {
+        EmailService.BulkSendResult result = emailService.sendBulk(messages);
+        for (SimpleMailMessage message : result.failed()) {
+            try {
+                emailService.sendEmail(message.getTo()[0], message.getSubject(), message.getText());
+            } catch (Exception e) {
+                log.warn("Could not queue email to {} for retry: {}", message.getTo()[0], e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private String expenseSummaryBody(DigestRecipientDTO recipient, List<DailyExpenseRowDTO> todaysExpenses) {
+        StringBuilder table = new StringBuilder();
+        table.append("<table style='border-collapse:collapse;width:100%;'>");
+        table.append("<tr style='background-color:#f2f2f2;'><th style='border:1px solid #ddd;padding:8px;'>S.No</th><th style='border:1px solid #ddd;padding:8px;'>Name</th><th style='border:1px solid #ddd;padding:8px;'>Amount</th><th style='border:1px solid #ddd;padding:8px;'>Category</th></tr>");
+        int i = 1;
+        for (DailyExpenseRowDTO expense : todaysExpenses) {
+            table.append("<tr>");
+            table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(i++).append("</td>");
+            table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(expense.getName()).append("</td>");
+            table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(expense.getAmount()).append("</td>");
+            table.append("<td style='border:1px solid #ddd;padding:8px;'>").append(expense.getCategoryName()).append("</td>");
+            table.append("</tr>");
+        }
+        table.append("</table>");
+        return "Hi "+recipient.getFullName()+",<br/><br/> Here is a summary of your expenses for today:<br/><br/>"+table+"<br/><br/>Best regards,<br/>Money Manager Team";
     }
 }
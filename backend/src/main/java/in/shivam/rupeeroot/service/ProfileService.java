@@ -4,6 +4,7 @@ import in.shivam.rupeeroot.dto.AuthDTO;
 import in.shivam.rupeeroot.dto.ProfileDTO;
 import in.shivam.rupeeroot.entity.ProfileEntity;
 import in.shivam.rupeeroot.repository.ProfileRepository;
+import in.shivam.rupeeroot.security.ProfilePrincipal;
 import in.shivam.rupeeroot.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +15,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.Map;
@@ -32,6 +34,8 @@ public class ProfileService {
     @Value("${app.activation.url}")
     private String activationURL;
 
+    // Profile and activation mail commit together
+    @Transactional
     public ProfileDTO registerProfile(ProfileDTO profileDTO) {
         ProfileEntity newProfile = toEntity(profileDTO);
         newProfile.setActivationToken(UUID.randomUUID().toString());
@@ -60,6 +64,16 @@ public class ProfileService {
                 .orElse(false);
     }
 
+    // Identity of the current request, as loaded by JwtRequestFilter - no extra query
+    public ProfilePrincipal getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof ProfilePrincipal principal) {
+            return principal;
+        }
+        return ProfilePrincipal.from(getCurrentProfile());
+    }
+
+    // Managed entity for paths that modify the profile itself
     public ProfileEntity getCurrentProfile() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return profileRepository.findByEmail(authentication.getName())
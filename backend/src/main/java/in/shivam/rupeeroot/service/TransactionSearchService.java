@@ -0,0 +1,264 @@
+package in.shivam.rupeeroot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.shivam.rupeeroot.repository.ExpenseRepository;
+import in.shivam.rupeeroot.repository.IncomeRepository;
+import in.shivam.rupeeroot.search.TrigramIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-scope (group or solo profile) trigram indexes over expense and income names, used to resolve
+ * keyword filters to candidate ids before the DB fetch.
+ * Indexes are built lazily in the background on the first search of a scope; until one is ready,
+ * and whenever it cannot answer cheaply, callers get null and use the SQL LIKE path.
+ * Adds and deletes are applied incrementally after commit and broadcast so every node stays current.
+ */
+@Service
+@Slf4j
+public class TransactionSearchService implements MessageListener {
+
+    public static final String EXPENSE = "EXPENSE";
+    public static final String INCOME = "INCOME";
+
+    private static final String SEPARATOR = "|";
+
+    private final ExpenseRepository expenseRepository;
+    private final IncomeRepository incomeRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final int maxCandidates;
+    private final Cache<String, ScopeIndex> indexes; // "<kind>:<scope>"
+    private final ThreadPoolExecutor builder;
+    private final Counter indexHits;
+    private final Counter fallbacks;
+
+    // Lets a node ignore its own broadcasts - it has already applied the change
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public TransactionSearchService(ExpenseRepository expenseRepository,
+                                    IncomeRepository incomeRepository,
+                                    StringRedisTemplate redisTemplate,
+                                    RedisMessageListenerContainer listenerContainer,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.search.index.max-scopes:200}") long maxScopes,
+                                    @Value("${app.search.index.idle-ttl:30m}") Duration idleTtl,
+                                    @Value("${app.search.index.max-age:6h}") Duration maxAge,
+                                    @Value("${app.search.index.max-candidates:1000}") int maxCandidates,
+                                    @Value("${app.search.channel:rupeeroot:search:ops}") String channel) {
+        this.expenseRepository = expenseRepository;
+        this.incomeRepository = incomeRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channel = channel;
+        this.maxCandidates = maxCandidates;
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxScopes)
+                .expireAfterAccess(idleTtl)
+                .expireAfterWrite(maxAge) // bounds staleness if a broadcast is lost
+                .build();
+        // One background builder; extra build requests are dropped and retried on a later search
+        this.builder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(32),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-index-builder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.indexHits = counter(meterRegistry, "index");
+        this.fallbacks = counter(meterRegistry, "fallback");
+    }
+
+    private Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("search.index.requests")
+                .description("Keyword searches answered by the trigram index vs the SQL fallback")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+
+    // --- SEARCH ---
+
+    /**
+     * Ids in the scope whose name contains the keyword, or null when the caller should use the SQL path
+     * (index not built yet, keyword shorter than 3 characters, or too many matches).
+     */
+    public long[] findCandidates(String scope, String kind, List<Long> profileIds, String keyword) {
+        if (keyword == null || keyword.length() < TrigramIndex.MIN_KEYWORD_LENGTH) {
+            return null;
+        }
+        String key = kind + ":" + scope;
+        ScopeIndex scopeIndex = indexes.get(key, k -> new ScopeIndex());
+        if (!scopeIndex.ready) {
+            scheduleBuild(key, scopeIndex, kind, profileIds);
+            fallbacks.increment();
+            return null;
+        }
+        long[] ids = scopeIndex.index.search(keyword, maxCandidates);
+        (ids != null ? indexHits : fallbacks).increment();
+        return ids;
+    }
+
+    private void scheduleBuild(String key, ScopeIndex scopeIndex, String kind, List<Long> profileIds) {
+        if (!scopeIndex.building.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            builder.execute(() -> build(key, scopeIndex, kind, profileIds));
+        } catch (RejectedExecutionException e) {
+            scopeIndex.building.set(false);
+        }
+    }
+
+    private void build(String key, ScopeIndex scopeIndex, String kind, List<Long> profileIds) {
+        try {
+            long start = System.nanoTime();
+            List<Object[]> rows = EXPENSE.equals(kind)
+                    ? expenseRepository.findIdAndNameByProfileIdIn(profileIds)
+                    : incomeRepository.findIdAndNameByProfileIdIn(profileIds);
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                // Deleted while we were reading - don't resurrect it
+                if (!scopeIndex.removedWhileBuilding.contains(id)) {
+                    scopeIndex.index.put(id, (String) row[1]);
+                }
+            }
+            scopeIndex.removedWhileBuilding.clear();
+            scopeIndex.ready = true;
+            log.info("Search index {} built: {} rows in {} ms", key, rows.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.warn("Search index build failed for {}: {}", key, e.getMessage());
+            indexes.asMap().remove(key, scopeIndex);
+        }
+    }
+
+    // --- INCREMENTAL UPDATES (called from ExpenseService / IncomeService) ---
+
+    public void onAdded(String scope, String kind, Long id, String name) {
+        afterCommit(() -> {
+            applyAdd(kind + ":" + scope, id, name);
+            publish("A", kind + ":" + scope, id + SEPARATOR + (name != null ? name : ""));
+        });
+    }
+
+    public void onRemoved(String scope, String kind, Long id) {
+        afterCommit(() -> {
+            applyRemove(kind + ":" + scope, id);
+            publish("R", kind + ":" + scope, String.valueOf(id));
+        });
+    }
+
+    // Membership changed: the scope's rows are a different set now, rebuild on the next search
+    public void invalidate(String scope) {
+        afterCommit(() -> {
+            for (String kind : List.of(EXPENSE, INCOME)) {
+                indexes.invalidate(kind + ":" + scope);
+                publish("D", kind + ":" + scope, "");
+            }
+        });
+    }
+
+    private void applyAdd(String key, Long id, String name) {
+        ScopeIndex scopeIndex = indexes.getIfPresent(key);
+        if (scopeIndex != null) {
+            scopeIndex.removedWhileBuilding.remove(id);
+            scopeIndex.index.put(id, name);
+        }
+    }
+
+    private void applyRemove(String key, Long id) {
+        ScopeIndex scopeIndex = indexes.getIfPresent(key);
+        if (scopeIndex != null) {
+            if (!scopeIndex.ready) {
+                scopeIndex.removedWhileBuilding.add(id);
+            }
+            scopeIndex.index.remove(id);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // --- CROSS-NODE ---
+
+    // nodeId|op|key|payload - the payload goes last because names may contain the separator
+    private void publish(String op, String key, String payload) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + SEPARATOR + op + SEPARATOR + key + SEPARATOR + payload);
+        } catch (Exception e) {
+            // Other nodes keep a stale index until it ages out (app.search.index.max-age)
+            log.warn("Failed to publish search index update for {}: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length != 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        String key = parts[2];
+        switch (parts[1]) {
+            case "A" -> {
+                String[] payload = parts[3].split("\\|", 2);
+                applyAdd(key, Long.parseLong(payload[0]), payload.length > 1 ? payload[1] : "");
+            }
+            case "R" -> applyRemove(key, Long.parseLong(parts[3]));
+            case "D" -> indexes.invalidate(key);
+            default -> log.debug("Unknown search index op {}", parts[1]);
+        }
+    }
+
+    private static class ScopeIndex {
+        final TrigramIndex index = new TrigramIndex();
+        final AtomicBoolean building = new AtomicBoolean();
+        final Set<Long> removedWhileBuilding = ConcurrentHashMap.newKeySet();
+        volatile boolean ready;
+    }
+}
@@ -0,0 +1,77 @@
+package in.shivam.rupeeroot.util;
+
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a page: the sort value and id of that row, plus the sort it belongs to.
+ * Sent to clients as an opaque URL-safe base64 string. value is null when that row's sort column is null.
+ */
+public record KeysetCursor(TransactionSortField field, Sort.Direction direction, String value, long id) {
+
+    // Listings keep returning a plain JSON array; the cursor for the next page travels in this header
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String SEPARATOR = "|";
+
+    public static int clampPageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    // Cursor pointing just past the given row (expenses and incomes share these columns)
+    public static KeysetCursor at(TransactionSortField field, Sort.Direction direction,
+                                  long id, LocalDate date, BigDecimal amount, String name) {
+        String value = switch (field) {
+            case DATE -> date != null ? date.toString() : null;
+            case AMOUNT -> amount != null ? amount.toPlainString() : null;
+            case NAME -> name;
+        };
+        return new KeysetCursor(field, direction, value, id);
+    }
+
+    public Comparable<?> typedValue() {
+        return value != null ? field.parseValue(value) : null;
+    }
+
+    // The value goes last so it may itself contain the separator (names can); a null value has no fourth part,
+    // which keeps it apart from an empty name
+    public String encode() {
+        String raw = field.name() + SEPARATOR + direction.name() + SEPARATOR + id
+                + (value != null ? SEPARATOR + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor and checks it was issued for the same sort as the current request.
+     * Throws IllegalArgumentException for anything malformed.
+     */
+    public static KeysetCursor decode(String encoded, TransactionSortField field, Sort.Direction direction) {
+        KeysetCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            cursor = new KeysetCursor(
+                    TransactionSortField.valueOf(parts[0]),
+                    Sort.Direction.valueOf(parts[1]),
+                    parts.length > 3 ? parts[3] : null,
+                    Long.parseLong(parts[2]));
+            cursor.typedValue(); // validates the value for the field
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (cursor.field() != field || cursor.direction() != direction) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+        return cursor;
+    }
+}
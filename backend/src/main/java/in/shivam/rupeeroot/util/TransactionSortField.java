@@ -0,0 +1,46 @@
+package in.shivam.rupeeroot.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Sort fields allowed on transaction listings. Each one is backed by a (profile_id, field, id) index,
+ * and id is always appended as the tie-breaker so keyset pagination stays stable.
+ */
+public enum TransactionSortField {
+    DATE("date"),
+    AMOUNT("amount"),
+    NAME("name");
+
+    private final String property;
+
+    TransactionSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    // null/blank means the default (date); anything outside the whitelist is rejected
+    public static TransactionSortField fromRequest(String value) {
+        if (value == null || value.isBlank()) {
+            return DATE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sort field. Must be 'date', 'amount' or 'name'");
+        }
+    }
+
+    // Turns the string form stored in a cursor back into the value compared in the keyset predicate
+    public Comparable<?> parseValue(String raw) {
+        return switch (this) {
+            case DATE -> LocalDate.parse(raw);
+            case AMOUNT -> new BigDecimal(raw);
+            case NAME -> raw;
+        };
+    }
+}
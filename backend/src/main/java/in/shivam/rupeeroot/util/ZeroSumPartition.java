@@ -0,0 +1,80 @@
+package in.shivam.rupeeroot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a zero-sum set of balances into the largest number of disjoint zero-sum subsets.
+ * Settling each subset on its own takes (size - 1) transfers, so the most subsets means the fewest
+ * transfers overall: members - subsets. Bitmask DP over all 2^n subsets, O(2^n * n) time and
+ * 9 * 2^n bytes, so it is only meant for small n (see MAX_SIZE).
+ */
+public final class ZeroSumPartition {
+
+    // 2^22 subsets is ~38 MB of working memory; beyond that callers should not even try
+    public static final int MAX_SIZE = 22;
+
+    // How many subsets to evaluate between deadline checks
+    private static final int CHECK_INTERVAL_MASK = 0xFFF;
+
+    private ZeroSumPartition() {
+    }
+
+    /**
+     * Index groups of the given balances, each summing to zero, or null when the deadline
+     * (System.nanoTime()) passes first. The balances must sum to zero and be at most MAX_SIZE long.
+     */
+    public static List<int[]> solve(long[] balances, long deadlineNanos) {
+        int n = balances.length;
+        if (n > MAX_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_SIZE + " balances, got " + n);
+        }
+        int full = (1 << n) - 1;
+        long[] sums = new long[full + 1];
+        byte[] best = new byte[full + 1]; // most zero-sum prefixes over any ordering of the subset
+
+        for (int mask = 1; mask <= full; mask++) {
+            if ((mask & CHECK_INTERVAL_MASK) == 0 && System.nanoTime() > deadlineNanos) {
+                return null;
+            }
+            int low = mask & -mask;
+            sums[mask] = sums[mask ^ low] + balances[Integer.numberOfTrailingZeros(low)];
+            int max = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                max = Math.max(max, best[mask ^ (rest & -rest)]);
+            }
+            best[mask] = (byte) (max + (sums[mask] == 0 ? 1 : 0));
+        }
+
+        // Walk back from the full set, then replay the order forwards: every zero-sum prefix closes a group
+        int[] order = new int[n];
+        int mask = full;
+        for (int pos = n - 1; pos >= 0; pos--) {
+            int target = best[mask] - (sums[mask] == 0 ? 1 : 0);
+            int pick = mask & -mask;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (best[mask ^ bit] == target) {
+                    pick = bit;
+                    break;
+                }
+            }
+            order[pos] = Integer.numberOfTrailingZeros(pick);
+            mask ^= pick;
+        }
+
+        List<int[]> groups = new ArrayList<>();
+        int start = 0;
+        long prefix = 0;
+        for (int pos = 0; pos < n; pos++) {
+            prefix += balances[order[pos]];
+            if (prefix == 0) {
+                int[] group = new int[pos + 1 - start];
+                System.arraycopy(order, start, group, 0, group.length);
+                groups.add(group);
+                start = pos + 1;
+            }
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,163 @@
+package in.shivam.rupeeroot.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Fans group and user topics out to every node. Sits on the brokerChannel: once the local simple broker
+ * has taken a /topic/groups/** or /topic/user/** message, its already-serialized payload is published
+ * once on a Redis channel; every other node puts it back on its own brokerChannel, marked as relayed,
+ * and its simple broker delivers it to the sessions connected there.
+ * Local delivery never waits on Redis, so a Redis outage only cuts off the other nodes.
+ * Switch off with app.websocket.relay=none for a single node.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.relay", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisBrokerRelay implements ChannelInterceptor, MessageListener {
+
+    private static final String RELAYED_HEADER = "rupeeroot.relayed";
+    private static final byte SEPARATOR = '\n';
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MessageChannel brokerChannel;
+    private final String channel;
+    private final byte[] channelBytes;
+    private final Counter published;
+    private final Counter received;
+
+    // Lets a node skip its own publications - it has already delivered them locally
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public RedisBrokerRelay(StringRedisTemplate redisTemplate,
+                            RedisMessageListenerContainer listenerContainer,
+                            @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.websocket.relay-channel:rupeeroot:ws:relay}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.brokerChannel = brokerChannel;
+        this.channel = channel;
+        this.channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+        this.published = counter(meterRegistry, "out");
+        this.received = counter(meterRegistry, "in");
+    }
+
+    private Counter counter(MeterRegistry registry, String direction) {
+        return Counter.builder("websocket.relay.messages")
+                .description("Topic messages relayed between nodes over Redis")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    public static boolean isRelayed(String destination) {
+        return destination != null
+                && (destination.startsWith("/topic/groups/") || destination.startsWith("/topic/user/"));
+    }
+
+    // --- OUTBOUND: local broker has the message, tell the other nodes ---
+
+    @Override
+    public void postSend(Message<?> message, MessageChannel channel, boolean sent) {
+        MessageHeaders headers = message.getHeaders();
+        if (headers.containsKey(RELAYED_HEADER)
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (!isRelayed(destination)) {
+            return;
+        }
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        byte[] envelope = encode(destination, contentType != null ? contentType.toString() : "", payload);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channelBytes, envelope));
+            published.increment();
+        } catch (Exception e) {
+            log.warn("WebSocket relay publish to {} failed: {}", destination, e.getMessage());
+        }
+    }
+
+    // --- INBOUND: another node's message, deliver to our sessions ---
+
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        byte[] body = message.getBody();
+        int first = indexOf(body, 0);
+        int second = first < 0 ? -1 : indexOf(body, first + 1);
+        int third = second < 0 ? -1 : indexOf(body, second + 1);
+        if (third < 0) {
+            log.warn("Ignoring malformed WebSocket relay message");
+            return;
+        }
+        if (nodeId.equals(new String(body, 0, first, StandardCharsets.UTF_8))) {
+            return;
+        }
+        String destination = new String(body, first + 1, second - first - 1, StandardCharsets.UTF_8);
+        String contentType = new String(body, second + 1, third - second - 1, StandardCharsets.UTF_8);
+        byte[] payload = new byte[body.length - third - 1];
+        System.arraycopy(body, third + 1, payload, 0, payload.length);
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        if (!contentType.isEmpty()) {
+            accessor.setContentType(MimeType.valueOf(contentType));
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        brokerChannel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        received.increment();
+    }
+
+    // node id \n destination \n content type \n payload
+    private byte[] encode(String destination, String contentType, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 128);
+        out.writeBytes(nodeId.getBytes(StandardCharsets.UTF_8));
+        out.write(SEPARATOR);
+        out.writeBytes(destination.getBytes(StandardCharsets.UTF_8));
+        out.write(SEPARATOR);
+        out.writeBytes(contentType.getBytes(StandardCharsets.UTF_8));
+        out.write(SEPARATOR);
+        out.writeBytes(payload);
+        return out.toByteArray();
+    }
+
+    private int indexOf(byte[] body, int from) {
+        for (int i = from; i < body.length; i++) {
+            if (body[i] == SEPARATOR) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
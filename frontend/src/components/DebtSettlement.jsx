@@ -11,7 +11,7 @@ const DebtSettlement = () => {
     const [settlingId, setSettlingId] = useState(null);
     
     // Get the current logged-in user from Context
-    const { user, transactionTrigger, setTransactionTrigger } = useContext(AppContext);
+    const { user, transactionTrigger, setTransactionTrigger, groupEvent } = useContext(AppContext);
 
     const fetchDebts = async () => {
         setLoading(true);
@@ -27,9 +27,11 @@ const DebtSettlement = () => {
         }
     };
 
+    // Debts only move with expenses and settlements, not incomes
+    const debtEvent = groupEvent?.events.some(e => e.expense) ? groupEvent : null;
     useEffect(() => {
         fetchDebts();
-    }, [transactionTrigger]);
+    }, [transactionTrigger, debtEvent]);
 
     const handleSettle = async (debt) => {
         setSettlingId(debt.toUserId);
@@ -5,32 +5,43 @@ import axiosConfig from "../util/axiosConfig.jsx";
 import moment from "moment";
 
 const GroupChat = () => {
-    const { user, chatMessages, setChatMessages, sendChatMessage } = useContext(AppContext);
+    const { user, chatMessages, appendChatMessages, sendChatMessage } = useContext(AppContext);
     const [input, setInput] = useState("");
+    const [olderCursor, setOlderCursor] = useState(null); // X-Next-Cursor of the oldest page loaded, null when none left
+    const [loadingOlder, setLoadingOlder] = useState(false);
     const scrollRef = useRef(null);
 
-    // 1. Load History on Mount
+    // One page of history, oldest first; merged by seq so it never overwrites live messages
+    const fetchPage = async (before) => {
+        const res = await axiosConfig.get(`/chat/history/${user.groupId}`, { params: before ? { before } : {} });
+        appendChatMessages(res.data);
+        setOlderCursor(res.headers["x-next-cursor"] || null);
+    };
+
+    // 1. Load the newest page on mount
     useEffect(() => {
-        const fetchHistory = async () => {
-            if (user?.groupId) {
-                try {
-                    // We only fetch if list is empty to avoid overwriting live data
-                    if (chatMessages.length === 0) {
-                        const res = await axiosConfig.get(`/chat/history/${user.groupId}`);
-                        setChatMessages(res.data);
-                    }
-                } catch (error) {
-                    console.error("Failed to load chat history");
-                }
-            }
-        };
-        fetchHistory();
+        if (!user?.groupId) return;
+        fetchPage(null).catch(() => console.error("Failed to load chat history"));
     }, [user]);
 
-    // 2. Auto-scroll to bottom when new message arrives
+    // 2. Older pages on demand
+    const loadOlder = async () => {
+        if (!olderCursor || loadingOlder) return;
+        setLoadingOlder(true);
+        try {
+            await fetchPage(olderCursor);
+        } catch (error) {
+            console.error("Failed to load older messages");
+        } finally {
+            setLoadingOlder(false);
+        }
+    };
+
+    // 3. Auto-scroll to bottom when a new message arrives (not when older ones are prepended)
+    const lastSeq = chatMessages[chatMessages.length - 1]?.seq;
     useEffect(() => {
         scrollRef.current?.scrollIntoView({ behavior: "smooth" });
-    }, [chatMessages]);
+    }, [lastSeq]);
 
     const handleSend = (e) => {
         e.preventDefault();
@@ -44,6 +55,18 @@ const GroupChat = () => {
             
             {/* Messages Area */}
             <div className="flex-1 overflow-y-auto p-4 space-y-4 custom-scrollbar bg-gray-50/50 rounded-t-xl">
+                {olderCursor && (
+                    <div className="text-center">
+                        <button
+                            type="button"
+                            onClick={loadOlder}
+                            disabled={loadingOlder}
+                            className="text-xs text-purple-600 hover:underline disabled:opacity-50"
+                        >
+                            {loadingOlder ? "Loading..." : "Load older messages"}
+                        </button>
+                    </div>
+                )}
                 {chatMessages.length === 0 ? (
                     <div className="text-center text-gray-400 mt-10">
                         <MessageCircle size={40} className="mx-auto mb-2 opacity-20" />
@@ -53,7 +76,7 @@ const GroupChat = () => {
                     chatMessages.map((msg, idx) => {
                         const isMe = msg.senderEmail === user.email;
                         return (
-                            <div key={idx} className={`flex ${isMe ? 'justify-end' : 'justify-start'}`}>
+                            <div key={msg.seq ?? idx} className={`flex ${isMe ? 'justify-end' : 'justify-start'}`}>
                                 <div className={`max-w-[80%] ${isMe ? 'items-end' : 'items-start'} flex flex-col`}>
                                     <div 
                                         className={`px-4 py-2 rounded-2xl text-sm shadow-sm ${
@@ -7,8 +7,8 @@ import { AppContext } from "../context/AppContext.jsx";
 
 const RecentActivity = () => {
     const [activities, setActivities] = useState([]);
-    // We use transactionTrigger to reload this list whenever a WebSocket update comes in!
-    const { transactionTrigger } = useContext(AppContext);
+    // We use transactionTrigger and groupEvent to reload this list whenever a WebSocket update comes in!
+    const { transactionTrigger, groupEvent } = useContext(AppContext);
 
     useEffect(() => {
         const fetchActivities = async () => {
@@ -23,7 +23,7 @@ const RecentActivity = () => {
         };
 
         fetchActivities();
-    }, [transactionTrigger]); // Auto-refresh on new data
+    }, [transactionTrigger, groupEvent]); // Auto-refresh on new data
 
     return (
         <div className="card h-full">
@@ -6,18 +6,76 @@ import { WS_URL } from "../util/apiEndpoints";
 
 export const AppContext = createContext();
 
+const CHAT_RESUME_BATCH = 200; // ChatService.MAX_PAGE_SIZE
+
 export const AppContextProvider = ({ children }) => {
     const [user, setUser] = useState(null);
     const [transactionTrigger, setTransactionTrigger] = useState(0);
+    // Latest batch of expense/income events (rows + new totals) for components to patch their state with
+    const [groupEvent, setGroupEvent] = useState(null);
+    const groupVersionRef = useRef(0); // Version of the last batch applied, to spot missed ones
     
     // --- NEW CHAT STATE ---
     const [chatMessages, setChatMessages] = useState([]);
     const stompClientRef = useRef(null); // Keep reference to client to send messages
+    const lastChatSeqRef = useRef(0); // Newest chat seq we hold, for resuming after a reconnect
 
     const clearUser = () => {
         setUser(null);
         setChatMessages([]);
+        setGroupEvent(null);
+        groupVersionRef.current = 0;
+    };
+    useEffect(() => {
+        const last = chatMessages[chatMessages.length - 1];
+        lastChatSeqRef.current = last?.seq ?? 0;
+    }, [chatMessages]);
+
+    // Skip messages we already have (a resume can overlap the live topic) and keep the list in seq order,
+    // since messages relayed from other nodes can arrive out of order
+    const appendChatMessages = (incoming) => {
+        setChatMessages(prev => {
+            const fresh = incoming.filter(m => !prev.some(p => p.seq === m.seq));
+            if (fresh.length === 0) return prev;
+            return [...prev, ...fresh].sort((a, b) => a.seq - b.seq);
+        });
+    };
+
+    // Versions are consecutive per group: apply the next one, drop repeats, refetch everything on a gap
+    const applyGroupEvent = (batch) => {
+        const last = groupVersionRef.current;
+        if (last > 0 && batch.version <= last) return;
+        groupVersionRef.current = batch.version;
+        if (last > 0 && batch.version > last + 1) {
+            setTransactionTrigger(prev => prev + 1);
+            return;
+        }
+        setGroupEvent(batch);
+    };
+
+    // One toast per batch, however many rows a bulk entry added
+    const toastAdded = (batch, type, label) => {
+        const added = batch.events.filter(e => e.type === type).length;
+        if (added === 1) {
+            toast.success(`New ${label} in Group!`);
+        } else if (added > 1) {
+            toast.success(`${added} new ${label.toLowerCase()}s in Group!`);
+        }
     };
+
+    // Each SUBSCRIBE to .../since/{seq} replies once with up to CHAT_RESUME_BATCH messages after seq;
+    // a full batch means more are waiting, so ask again from the last one until a short batch comes back
+    const resumeChat = (client, groupId, afterSeq) => {
+        const resume = client.subscribe(`/app/chat/${groupId}/since/${afterSeq}`, (message) => {
+            resume.unsubscribe();
+            const batch = JSON.parse(message.body);
+            appendChatMessages(batch);
+            if (batch.length >= CHAT_RESUME_BATCH && client.connected) {
+                resumeChat(client, groupId, Math.max(...batch.map(m => m.seq)));
+            }
+        });
+    };
+
 useEffect(() => {
         if (!user) return;
 
@@ -30,30 +88,38 @@ useEffect(() => {
             onConnect: () => {
                 console.log("Connected to WebSocket");
 
-                // 1. Expenses & Settlements (UPDATED LOGIC)
-                client.subscribe(`${basePath}/expenses`, (message) => {
-                    // Check the actual message content sent from Backend
-                    if (message.body === "Expense Added") {
-                        toast.success("New Expense in Group!");
-                    } 
-                    // If it is "Debt Settled", we DO NOT show a toast, 
-                    // but we still refresh the data.
-                    
+                // Events sent while we were disconnected are gone: refetch once
+                if (groupVersionRef.current > 0) {
+                    groupVersionRef.current = 0;
                     setTransactionTrigger(prev => prev + 1);
+                }
+
+                // 1. Expenses & Settlements: batches of typed events carrying the rows and the new totals
+                client.subscribe(`${basePath}/expenses`, (message) => {
+                    const batch = JSON.parse(message.body);
+                    // No toast for settlements, the data still updates
+                    toastAdded(batch, "EXPENSE_ADDED", "Expense");
+                    applyGroupEvent(batch);
                 });
                 
-                // 2. Incomes (Existing)
-                client.subscribe(`${basePath}/incomes`, () => {
-                    toast.success("New Income in Group!"); 
-                    setTransactionTrigger(prev => prev + 1);
+                // 2. Incomes
+                client.subscribe(`${basePath}/incomes`, (message) => {
+                    const batch = JSON.parse(message.body);
+                    toastAdded(batch, "INCOME_ADDED", "Income");
+                    applyGroupEvent(batch);
                 });
 
                 // 3. Chat (Existing)
                 if (user.groupId) {
                     client.subscribe(`/topic/groups/${user.groupId}/chat`, (message) => {
                         const receivedMsg = JSON.parse(message.body);
-                        setChatMessages(prev => [...prev, receivedMsg]);
+                        appendChatMessages([receivedMsg]);
                     });
+
+                    // Reconnected: fetch whatever was sent while we were away
+                    if (lastChatSeqRef.current > 0) {
+                        resumeChat(client, user.groupId, lastChatSeqRef.current);
+                    }
                 }
             },
             onStompError: (frame) => {
@@ -92,8 +158,10 @@ useEffect(() => {
         clearUser,
         transactionTrigger,
         setTransactionTrigger, // <--- ADDED THIS LINE (The Fix)
+        groupEvent,
         chatMessages,       
         setChatMessages,    
+        appendChatMessages,
         sendChatMessage     
     };
 
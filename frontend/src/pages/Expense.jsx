@@ -4,6 +4,7 @@ import toast from "react-hot-toast";
 import {useUser} from "../hooks/useUser.jsx";
 import axiosConfig from "../util/axiosConfig.jsx";
 import {API_ENDPOINTS} from "../util/apiEndpoints.js";
+import {fetchAllPages} from "../util/util.js";
 import Dashboard from "../components/Dashboard.jsx";
 import ExpenseOverview from "../components/ExpenseOverview.jsx";
 import ExpenseList from "../components/ExpenseList.jsx";
@@ -29,13 +30,8 @@ const Expense = () => {
         setLoading(true);
 
         try {
-            const response = await axiosConfig.get(
-                `${API_ENDPOINTS.GET_ALL_EXPENSE}`
-            );
-
-            if (response.data) {
-                setExpenseData(response.data);
-            }
+            const expenses = await fetchAllPages(axiosConfig, API_ENDPOINTS.GET_ALL_EXPENSE);
+            setExpenseData(expenses);
         } catch (error) {
             toast.error("Failed to fetch expense details");
         } finally {
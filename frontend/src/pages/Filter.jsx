@@ -18,21 +18,25 @@ const Filter = () => {
     const [sortOrder, setSortOrder] = useState("asc");
     const [transactions, setTransactions] = useState([]);
     const [loading, setLoading] = useState(false);
+    // Results come a page at a time; the X-Next-Cursor of the last page, null when there is no more
+    const [nextCursor, setNextCursor] = useState(null);
+    const [appliedFilters, setAppliedFilters] = useState(null);
+
+    const fetchPage = async (filters, cursor) => {
+        const response = await axiosConfig.post(API_ENDPOINTS.APPLY_FILTERS, { ...filters, cursor });
+        setNextCursor(response.headers["x-next-cursor"] || null);
+        return response.data;
+    };
 
     const handleSearch = async (e) => {
         e.preventDefault();
         setLoading(true);
+        // Later pages must use the filters of the first one, even if the form changes meanwhile
+        const filters = { type, startDate, endDate, keyword, sortField, sortOrder };
         try {
-            const response = await axiosConfig.post(API_ENDPOINTS.APPLY_FILTERS, {
-                type,
-                startDate,
-                endDate,
-                keyword,
-                sortField,
-                sortOrder
-            });
-            console.log('transactions: ', response.data);
-            setTransactions(response.data);
+            const rows = await fetchPage(filters, null);
+            setAppliedFilters(filters);
+            setTransactions(rows);
         }catch (error) {
             console.error('Failed to fetch transactions: ', error);
             toast.error(error.message || "Failed to fetch transactions. Please try again.");
@@ -42,6 +46,20 @@ const Filter = () => {
 
     }
 
+    const handleLoadMore = async () => {
+        if (!nextCursor || loading) return;
+        setLoading(true);
+        try {
+            const rows = await fetchPage(appliedFilters, nextCursor);
+            setTransactions(prev => [...prev, ...rows]);
+        } catch (error) {
+            console.error('Failed to fetch more transactions: ', error);
+            toast.error(error.message || "Failed to fetch more transactions. Please try again.");
+        } finally {
+            setLoading(false);
+        }
+    }
+
     return (
         <Dashboard activeMenu="Filters">
             <div className="my-5 mx-auto">
@@ -73,7 +91,7 @@ const Filter = () => {
                             <select value={sortField} id="sortfield" className="w-full border rounded px-3 py-2" onChange={e => setSortField(e.target.value)}>
                                 <option value="date">Date</option>
                                 <option value="amount">Amount</option>
-                                <option value="category">Category</option>
+                                <option value="name">Name</option>
                             </select>
                         </div>
                         <div>
@@ -111,10 +129,15 @@ const Filter = () => {
                             icon={transaction.icon}
                             date={moment(transaction.date).format('Do MMM YYYY')}
                             amount={transaction.amount}
-                            type={type}
+                            type={appliedFilters?.type ?? type}
                             hideDeleteBtn
                         />
                     ))}
+                    {nextCursor && !loading && (
+                        <button onClick={handleLoadMore} className="mt-4 w-full py-2 text-sm text-purple-800 border border-purple-800 rounded hover:bg-purple-50 cursor-pointer">
+                            Load more
+                        </button>
+                    )}
                 </div>
             </div>
         </Dashboard>
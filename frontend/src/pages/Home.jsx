@@ -14,10 +14,63 @@ import {AppContext} from "../context/AppContext.jsx";
 import WhatIfCalculator from "../components/WhatIfCalculator.jsx";
 import GroupConsole from "../components/GroupConsole.jsx"; // --- IMPORT THIS ---
 
+// Same ordering as the dashboard queries; dates are ISO strings, so they compare as text
+const byDateThenIdDesc = (a, b) => b.date.localeCompare(a.date) || b.id - a.id;
+const byDateThenCreatedDesc = (a, b) =>
+    b.date.localeCompare(a.date) || (a.createdAt && b.createdAt ? b.createdAt.localeCompare(a.createdAt) : 0);
+
+const toRecent = (row, type) => ({
+    id: row.id,
+    icon: row.icon,
+    name: row.name,
+    amount: row.amount,
+    date: row.date,
+    createdAt: row.createdAt,
+    updatedAt: row.updatedAt,
+    type,
+    creatorName: row.creatorName,
+});
+
+// Mirrors DashboardService: latest 5 non-settlement expenses and latest 5 incomes (date desc, id desc),
+// merged into recentTransactions by date desc, then createdAt desc. refetch is set when a shown row was
+// deleted, since the server would fill the gap with a row we don't have
+const patchDashboard = (prev, batch) => {
+    let expenses = prev.recent5Expenses || [];
+    let incomes = prev.recent5Incomes || [];
+    let refetch = false;
+    for (const event of batch.events) {
+        // Settlements never appear in the dashboard lists
+        if (event.type === "DEBT_SETTLED" || event.expense?.isSettlement) continue;
+        const row = event.expense || event.income;
+        const list = event.expense ? expenses : incomes;
+        const remaining = list.filter(t => t.id !== row.id);
+        if (event.type.endsWith("_DELETED")) {
+            if (remaining.length < list.length) refetch = true;
+        } else {
+            remaining.push(row);
+        }
+        const latest = remaining.sort(byDateThenIdDesc).slice(0, 5);
+        if (event.expense) expenses = latest; else incomes = latest;
+    }
+    const data = {
+        ...prev,
+        totalBalance: batch.totalBalance,
+        totalIncome: batch.totalIncome,
+        totalExpense: batch.totalExpense,
+        recent5Expenses: expenses,
+        recent5Incomes: incomes,
+        recentTransactions: [
+            ...incomes.map(row => toRecent(row, "income")),
+            ...expenses.map(row => toRecent(row, "expense")),
+        ].sort(byDateThenCreatedDesc),
+    };
+    return { data, refetch };
+};
+
 const Home = () => {
     useUser();
 
-    const { transactionTrigger } = useContext(AppContext);
+    const { transactionTrigger, groupEvent } = useContext(AppContext);
 
     const navigate = useNavigate();
     const [dashboardData, setDashboardData] = useState(null);
@@ -45,6 +98,14 @@ const Home = () => {
         return () => {};
     }, [transactionTrigger]); 
 
+    // Patch totals and recent transactions from the event batch instead of refetching the dashboard
+    useEffect(() => {
+        if (!groupEvent || !dashboardData) return;
+        const { data, refetch } = patchDashboard(dashboardData, groupEvent);
+        setDashboardData(data);
+        if (refetch) fetchDashboardData();
+    }, [groupEvent]);
+
     return (
         <div>
             <Dashboard activeMenu="Dashboard">
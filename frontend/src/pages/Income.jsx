@@ -3,6 +3,7 @@ import {useUser} from "../hooks/useUser.jsx";
 import {useEffect, useState} from "react";
 import axiosConfig from "../util/axiosConfig.jsx";
 import {API_ENDPOINTS} from "../util/apiEndpoints.js";
+import {fetchAllPages} from "../util/util.js";
 import toast from "react-hot-toast";
 import IncomeList from "../components/IncomeList.jsx";
 import log from "eslint-plugin-react/lib/util/log.js";
@@ -31,10 +32,8 @@ const Income = () => {
         setLoading(true);
 
         try {
-            const response = await axiosConfig.get(API_ENDPOINTS.GET_ALL_INCOMES);
-            if (response.status === 200) {
-               setIncomeData(response.data);
-            }
+            const incomes = await fetchAllPages(axiosConfig, API_ENDPOINTS.GET_ALL_INCOMES);
+            setIncomeData(incomes);
         }catch(error) {
             console.error('Failed to fetch income details:', error);
             toast.error(error.response?.data?.message || "Failed to fetch income details");
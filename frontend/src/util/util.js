@@ -58,4 +58,17 @@ export const prepareIncomeLineChartData = (data = []) => {
     }));
 
     return chartData;
-};
\ No newline at end of file
+};
+
+// Listings come back one page at a time with the next cursor in X-Next-Cursor; follow it to the end
+// where the page needs every row (the monthly charts are drawn from the list)
+export const fetchAllPages = async (client, url) => {
+    const rows = [];
+    let cursor = null;
+    do {
+        const response = await client.get(url, { params: cursor ? { cursor } : {} });
+        rows.push(...response.data);
+        cursor = response.headers["x-next-cursor"];
+    } while (cursor);
+    return rows;
+};